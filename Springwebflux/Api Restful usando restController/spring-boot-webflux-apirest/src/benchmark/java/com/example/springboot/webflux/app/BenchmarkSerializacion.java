@@ -0,0 +1,157 @@
+package com.example.springboot.webflux.app;
+
+import com.example.springboot.webflux.app.models.documents.Categoria;
+import com.example.springboot.webflux.app.models.documents.Producto;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// bytes y cpu por respuesta de GET /api/productos: el Flux<Producto> pasa por el
+// Jackson2JsonEncoder como en el controlador, con el ObjectMapper por defecto de spring boot,
+// con el ajuste de JacksonConfig y application.properties (fechas como timestamp, sin nulos),
+// con blackbird encima y con la salida comprimida en gzip nivel 6 (el de server.compression).
+// Todo corre en el hilo del main: cpu y bytes reservados del hilo son los de la respuesta.
+// Uso: gradle benchmarkSerializacion -Pproductos=1000 -Piteraciones=500
+public class BenchmarkSerializacion {
+
+    private static final DefaultDataBufferFactory buffers = DefaultDataBufferFactory.sharedInstance;
+
+    private static final ResolvableType TIPO = ResolvableType.forClass(Producto.class);
+
+    private static final com.sun.management.ThreadMXBean hilo =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        int productos = argumento(args, 0, 1000);
+        int iteraciones = argumento(args, 1, 500);
+        List<Producto> listado = listado(productos);
+
+        ObjectMapper porDefecto = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper ajustado = Jackson2ObjectMapperBuilder.json()
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+        ObjectMapper conBlackbird = Jackson2ObjectMapperBuilder.json()
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .modules(new BlackbirdModule())
+                .build();
+
+        System.out.println("JVM " + Runtime.version() + ", " + productos + " productos, " + iteraciones + " iteraciones");
+        System.out.printf("%-22s %14s %16s %16s%n", "modo", "bytes/respuesta", "cpu us/respuesta", "reservado KB");
+        medir("jackson por defecto", porDefecto, false, listado, iteraciones);
+        medir("jackson ajustado", ajustado, false, listado, iteraciones);
+        medir("ajustado + blackbird", conBlackbird, false, listado, iteraciones);
+        medir("blackbird + gzip", conBlackbird, true, listado, iteraciones);
+    }
+
+    private static void medir(String modo, ObjectMapper mapper, boolean gzip, List<Producto> listado,
+                              int iteraciones) {
+        Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(mapper);
+        // calentamiento para que el jit compile el camino antes de medir
+        for (int i = 0; i < iteraciones / 2; i++) {
+            responder(encoder, gzip, listado);
+        }
+        long id = Thread.currentThread().getId();
+        long cpuInicial = hilo.getCurrentThreadCpuTime();
+        long reservadosInicial = hilo.getThreadAllocatedBytes(id);
+        long bytes = 0;
+        for (int i = 0; i < iteraciones; i++) {
+            bytes += responder(encoder, gzip, listado);
+        }
+        long cpu = hilo.getCurrentThreadCpuTime() - cpuInicial;
+        long reservados = hilo.getThreadAllocatedBytes(id) - reservadosInicial;
+        System.out.printf("%-22s %14d %16.1f %16.1f%n", modo, bytes / iteraciones, cpu / 1e3 / iteraciones,
+                reservados / 1024.0 / iteraciones);
+    }
+
+    // el "socket" solo cuenta los bytes que saldrian, comprimidos si hace falta
+    private static long responder(Jackson2JsonEncoder encoder, boolean gzip, List<Producto> listado) {
+        Contador contador = new Contador();
+        OutputStream salida = contador;
+        try {
+            if (gzip) {
+                salida = new GZIPOutputStream(contador, 8192);
+            }
+            OutputStream destino = salida;
+            encoder.encode(Flux.fromIterable(listado), buffers, TIPO, MediaType.APPLICATION_JSON, Collections.emptyMap())
+                    .doOnNext(buffer -> escribir(buffer, destino))
+                    .blockLast();
+            salida.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return contador.bytes;
+    }
+
+    private static void escribir(DataBuffer buffer, OutputStream salida) {
+        try (DataBuffer.ByteBufferIterator trozos = buffer.readableByteBuffers()) {
+            while (trozos.hasNext()) {
+                var trozo = trozos.next();
+                if (trozo.hasArray()) {
+                    salida.write(trozo.array(), trozo.arrayOffset() + trozo.position(), trozo.remaining());
+                } else {
+                    byte[] copia = new byte[trozo.remaining()];
+                    trozo.get(copia);
+                    salida.write(copia);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // la mitad sin foto, para que se note omitir los nulos
+    private static List<Producto> listado(int productos) {
+        List<Producto> listado = new ArrayList<>();
+        for (int i = 0; i < productos; i++) {
+            Categoria categoria = new Categoria("Categoria " + i % 10);
+            categoria.setId(String.format("%024x", i % 10));
+            Producto producto = new Producto("Producto de prueba " + i, 10.0 + i, categoria);
+            producto.setId(String.format("%024x", 1000 + i));
+            producto.setCreateAt(new Date());
+            if (i % 2 == 0) {
+                producto.setFoto(i + "-foto.jpg");
+            }
+            listado.add(producto);
+        }
+        return listado;
+    }
+
+    private static int argumento(String[] args, int posicion, int defecto) {
+        return args.length > posicion ? Integer.parseInt(args[posicion]) : defecto;
+    }
+
+    private static class Contador extends OutputStream {
+
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int desde, int tamano) {
+            bytes += tamano;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.springboot.webflux.app;
+
+import com.example.springboot.webflux.app.bulkhead.Bulkhead;
+import com.example.springboot.webflux.app.fotos.FirmaS3;
+import com.example.springboot.webflux.app.fotos.LocalPhotoStore;
+import com.example.springboot.webflux.app.fotos.PhotoStore;
+import com.example.springboot.webflux.app.fotos.S3PhotoStore;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.file.Paths;
+
+@Configuration
+@EnableScheduling
+public class FotosConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "config.fotos.almacen", havingValue = "local", matchIfMissing = true)
+    public PhotoStore localPhotoStore(@Value("${config.uploads.path}") String path,
+                                      @Qualifier("uploadBulkhead") Bulkhead uploads){
+        return new LocalPhotoStore(Paths.get(path), uploads);
+    }
+
+    // para probar en local basta un MinIO: config.fotos.s3.endpoint=http://localhost:9000
+    @Bean
+    @ConditionalOnProperty(name = "config.fotos.almacen", havingValue = "s3")
+    public PhotoStore s3PhotoStore(WebClient.Builder builder,
+                                   @Value("${config.fotos.s3.endpoint}") String endpoint,
+                                   @Value("${config.fotos.s3.bucket}") String bucket,
+                                   @Value("${config.fotos.s3.region:us-east-1}") String region,
+                                   @Value("${config.fotos.s3.access-key}") String accessKey,
+                                   @Value("${config.fotos.s3.secret-key}") String secretKey,
+                                   @Qualifier("uploadBulkhead") Bulkhead uploads){
+        return new S3PhotoStore(builder, endpoint, bucket, new FirmaS3(accessKey, secretKey, region), uploads);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.springboot.webflux.app;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    // Spring Boot registra cualquier Module en el ObjectMapper de los codecs,
+    // blackbird genera los accesores con LambdaMetafactory en vez de reflexion
+    @Bean
+    public Module blackbirdModule(){
+        return new BlackbirdModule();
+    }
+}
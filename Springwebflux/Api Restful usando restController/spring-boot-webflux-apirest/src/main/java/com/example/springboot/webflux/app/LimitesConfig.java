@@ -0,0 +1,69 @@
+package com.example.springboot.webflux.app;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import com.example.springboot.webflux.app.filter.LimitadorConcurrencia;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class LimitesConfig {
+
+    // comandos cuya duracion no es la de una operacion corta de la api: getMore espera mientras
+    // el cliente consume un cursor (listados y exportaciones en streaming), un aggregate puede
+    // recorrer la coleccion entera y killCursors es limpieza
+    private static final Set<String> SIN_LATENCIA = Set.of("getMore", "aggregate", "killCursors");
+
+    @Value("${config.limites.concurrencia.inicial:64}")
+    private int inicial;
+
+    @Value("${config.limites.concurrencia.minima:8}")
+    private int minima;
+
+    @Value("${config.limites.concurrencia.maxima:512}")
+    private int maxima;
+
+    @Value("${config.limites.concurrencia.latencia-objetivo:50ms}")
+    private Duration latenciaObjetivo;
+
+    @Value("${config.limites.concurrencia.factor-reduccion:0.9}")
+    private double factorReduccion;
+
+    @Value("${config.limites.concurrencia.intervalo-reduccion:100ms}")
+    private Duration intervaloReduccion;
+
+    @Bean
+    public LimitadorConcurrencia limitadorConcurrencia(){
+        return new LimitadorConcurrencia(inicial, minima, maxima, latenciaObjetivo.toNanos(),
+                factorReduccion, intervaloReduccion.toNanos());
+    }
+
+    // el limitador aprende de la latencia real de los comandos que llegan a mongo
+    @Bean
+    public MongoClientSettingsBuilderCustomizer latenciaMongoCustomizer(LimitadorConcurrencia limitador){
+        return builder -> builder.addCommandListener(new CommandListener() {
+            @Override
+            public void commandSucceeded(CommandSucceededEvent event) {
+                registrar(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+
+            @Override
+            public void commandFailed(CommandFailedEvent event) {
+                registrar(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+
+            private void registrar(String comando, long nanos) {
+                if (!SIN_LATENCIA.contains(comando)) {
+                    limitador.registrarLatencia(nanos);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.springboot.webflux.app;
+
+import com.example.springboot.webflux.app.mongo.MetricasPoolMongo;
+import com.mongodb.MongoCompressor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// ajustes del driver que la uri no lleva. La preferencia de lectura se decide por consulta
+// (@ReadPreference en los listados del dao); aqui queda la del uri, primary por defecto
+@Configuration
+public class MongoConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoConfig.class);
+
+    @Value("${config.mongo.pool.min:5}")
+    private int poolMinimo;
+
+    @Value("${config.mongo.pool.max:100}")
+    private int poolMaximo;
+
+    // cuanto espera una operacion por una conexion libre antes de fallar
+    @Value("${config.mongo.pool.espera-maxima:PT2S}")
+    private Duration esperaMaxima;
+
+    @Value("${config.mongo.pool.inactividad-maxima:PT60S}")
+    private Duration inactividadMaxima;
+
+    @Value("${config.mongo.pool.conectando-max:2}")
+    private int conectandoMaximo;
+
+    @Value("${config.mongo.timeout-conexion:PT5S}")
+    private Duration timeoutConexion;
+
+    @Value("${config.mongo.timeout-seleccion:PT5S}")
+    private Duration timeoutSeleccion;
+
+    // en orden de preferencia; el servidor elige el primero que soporte
+    @Value("${config.mongo.compresores:zstd,snappy,zlib}")
+    private List<String> compresores;
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer ajustesMongo(MeterRegistry registry){
+        MetricasPoolMongo metricas = new MetricasPoolMongo(registry);
+        List<MongoCompressor> disponibles = compresores();
+        return builder -> builder
+                .applyToConnectionPoolSettings(pool -> pool
+                        .minSize(poolMinimo)
+                        .maxSize(poolMaximo)
+                        .maxWaitTime(esperaMaxima.toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(inactividadMaxima.toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnecting(conectandoMaximo)
+                        .addConnectionPoolListener(metricas))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout((int) timeoutConexion.toMillis(), TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(cluster -> cluster
+                        .serverSelectionTimeout(timeoutSeleccion.toMillis(), TimeUnit.MILLISECONDS))
+                .compressorList(disponibles);
+    }
+
+    // zstd y snappy necesitan su libreria nativa; si no esta en el classpath se omiten
+    private List<MongoCompressor> compresores(){
+        List<MongoCompressor> lista = new ArrayList<>();
+        for (String nombre : compresores) {
+            switch (nombre.trim().toLowerCase()) {
+                case "zstd" -> agregar(lista, "com.github.luben.zstd.Zstd", MongoCompressor::createZstdCompressor, nombre);
+                case "snappy" -> agregar(lista, "org.xerial.snappy.Snappy", MongoCompressor::createSnappyCompressor, nombre);
+                case "zlib" -> lista.add(MongoCompressor.createZlibCompressor());
+                case "" -> { }
+                default -> log.warn("Compresor de mongo desconocido: " + nombre);
+            }
+        }
+        return lista;
+    }
+
+    private void agregar(List<MongoCompressor> lista, String clase,
+                         Supplier<MongoCompressor> compresor, String nombre){
+        if (ClassUtils.isPresent(clase, getClass().getClassLoader())) {
+            lista.add(compresor.get());
+        } else {
+            log.warn("Compresor de mongo " + nombre + " sin su libreria en el classpath, se omite");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.springboot.webflux.app.bulkhead;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// crea el scheduler de un bulkhead: boundedElastic acotado por defecto o, si se pide y la jvm
+// es 21+, un executor de un hilo virtual por tarea (el proyecto compila con 17, por eso reflexion)
+public final class SchedulersBloqueantes {
+
+    private static final Logger log = LoggerFactory.getLogger(SchedulersBloqueantes.class);
+
+    private SchedulersBloqueantes() {
+    }
+
+    public static Scheduler crear(String nombre, int hilos, int cola, boolean hilosVirtuales) {
+        if (hilosVirtuales) {
+            ExecutorService executor = executorVirtual(nombre);
+            if (executor != null) {
+                log.info("Bulkhead " + nombre + " usando hilos virtuales");
+                return Schedulers.fromExecutorService(executor, nombre);
+            }
+        }
+        return Schedulers.newBoundedElastic(hilos, cola, nombre);
+    }
+
+    private static ExecutorService executorVirtual(String nombre) {
+        if (Runtime.version().feature() < 21) {
+            log.warn("Hilos virtuales pedidos para " + nombre + " pero la JVM es " + Runtime.version()
+                    + ", se usa boundedElastic");
+            return null;
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("No se pudo crear el executor de hilos virtuales para " + nombre + ", se usa boundedElastic", e);
+            return null;
+        }
+    }
+}
@@ -1,22 +1,35 @@
 package com.example.springboot.webflux.app.controllers;
 
+import com.example.springboot.webflux.app.csv.CompresorGzip;
+import com.example.springboot.webflux.app.csv.CsvProductos;
+import com.example.springboot.webflux.app.csv.EstadoImportacion;
+import com.example.springboot.webflux.app.csv.ImportadorCsv;
+import com.example.springboot.webflux.app.fotos.PhotoStore;
 import com.example.springboot.webflux.app.models.documents.Producto;
 import com.example.springboot.webflux.app.models.services.ProductoService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.bson.types.ObjectId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.support.WebExchangeBindException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.io.File;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("api/productos")
@@ -25,8 +38,15 @@ public class ProductoController {
     @Autowired
     private ProductoService service;
 
-    @Value("${config.uploads.path}")
-    private String path;
+    @Autowired
+    private PhotoStore photoStore;
+
+    @Autowired
+    private ImportadorCsv importador;
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private static final int FILAS_POR_BUFFER = 256;
 
     @PostMapping("/v2")
     public Mono<ResponseEntity<Producto>> crearConFoto( Producto producto, @RequestPart FilePart file){
@@ -40,11 +60,12 @@ public class ProductoController {
                 .replace(":", "")
                 .replace("\\", ""));
 
-        return file.transferTo(new File(path + producto.getFoto()))
+        return photoStore.put(producto.getFoto(), file.content())
                 .then(service.save(producto)).map(p ->
                 ResponseEntity.created(URI.create("/api/productos/".concat(p.getId())))
                         .contentType(MediaType.APPLICATION_JSON)
-                        .body(p));
+                        .body(p))
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(uploadsSaturados()));
     }
 
     @GetMapping
@@ -53,11 +74,76 @@ public class ProductoController {
         return Mono.just(
                 ResponseEntity.ok()
                         .contentType(MediaType.APPLICATION_JSON)
-                        .body(service.findAll())
+                        .body(service.findAllListado())
         );
     }
 
 
+    // CSV escrito directamente desde el cursor de Mongo: cada lote de filas va a un buffer
+    // del pool de Netty y se escribe al ritmo que el cliente lo consume. Para reanudar una
+    // descarga cortada se pasa en since el id de la ultima fila completa recibida
+    @GetMapping("/exportar")
+    public ResponseEntity<Flux<DataBuffer>> exportar(@RequestParam(required = false) String since,
+                                                     @RequestParam(defaultValue = "false") boolean gzip,
+                                                     ServerHttpResponse response){
+
+        if(since != null && !ObjectId.isValid(since)){
+            return ResponseEntity.badRequest().build();
+        }
+
+        Flux<String> filas = service.findAllDesde(since)
+                .buffer(FILAS_POR_BUFFER)
+                .map(lote -> {
+                    StringBuilder texto = new StringBuilder(lote.size() * 96);
+                    lote.forEach(p -> CsvProductos.escribirFila(p, texto));
+                    return texto.toString();
+                });
+        // la cabecera solo al principio, asi las partes reanudadas se pueden concatenar
+        if(since == null){
+            filas = filas.startWith(CsvProductos.CABECERA);
+        }
+        Flux<DataBuffer> csv = filas.map(texto -> response.bufferFactory()
+                .allocateBuffer(texto.length() + 16)
+                .write(texto, StandardCharsets.UTF_8));
+
+        String archivo = gzip ? "productos.csv.gz" : "productos.csv";
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(archivo).build().toString())
+                .body(gzip ? CompresorGzip.comprimir(csv, response.bufferFactory()) : csv);
+    }
+
+    // el CSV se procesa segun llegan los bytes del multipart, sin pasarlo antes a memoria ni a
+    // disco; la respuesta va informando del progreso (NDJSON) y el mismo estado se puede
+    // consultar en /importaciones/{id}
+    @PostMapping(value = "/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<EstadoImportacion> importar(@RequestBody Flux<PartEvent> partes){
+
+        Flux<DataBuffer> csv = partes.windowUntil(PartEvent::isLast)
+                .concatMap(parte -> parte.switchOnFirst((primera, eventos) -> {
+                    if(primera.hasValue() && primera.get() instanceof FilePartEvent
+                            && "file".equals(primera.get().name())){
+                        return eventos.map(PartEvent::content);
+                    }
+                    return eventos.doOnNext(evento -> DataBufferUtils.release(evento.content()))
+                            .thenMany(Flux.<DataBuffer>empty());
+                }));
+
+        return importador.importar(csv);
+    }
+
+    @GetMapping("/importaciones/{id}")
+    public Mono<ResponseEntity<EstadoImportacion>> importacion(@PathVariable String id){
+
+        return Mono.just(importador.estado(id)
+                .map(estado -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(estado))
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
     @GetMapping("/{id}")
     public Mono<ResponseEntity<Producto>> ver(@PathVariable String id){
 
@@ -139,14 +225,25 @@ public class ProductoController {
 
        return service.findById(id)
                .flatMap( p -> {
+                   String fotoAnterior = p.getFoto();
                    p.setFoto(UUID.randomUUID().toString() + " " + file.filename()
                            .replace(" ", "")
                            .replace(":", "")
                            .replace("\\", ""));
 
-                   return file.transferTo(new File(path + p.getFoto()))
-                           .then(service.save(p));
+                   // la foto anterior se borra solo cuando el producto ya apunta a la nueva
+                   return photoStore.put(p.getFoto(), file.content())
+                           .then(service.save(p))
+                           .flatMap(guardado -> service.deleteFoto(fotoAnterior).thenReturn(guardado));
                }).map(p -> ResponseEntity.ok(p))
-               .defaultIfEmpty(ResponseEntity.notFound().build());
+               .defaultIfEmpty(ResponseEntity.notFound().build())
+               .onErrorResume(RejectedExecutionException.class, e -> Mono.just(uploadsSaturados()));
+    }
+
+    // cola del bulkhead llena: mejor un 503 rapido que seguir acumulando archivos en espera
+    private <T> ResponseEntity<T> uploadsSaturados(){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .build();
     }
 }
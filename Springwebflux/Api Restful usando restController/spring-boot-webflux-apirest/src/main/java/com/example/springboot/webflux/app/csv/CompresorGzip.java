@@ -0,0 +1,91 @@
+package com.example.springboot.webflux.app.csv;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+// comprime un flujo de DataBuffers en gzip trozo a trozo: en memoria solo esta el trozo
+// actual, nunca el archivo completo.
+// Si el cliente corta la descarga, la limpieza de Flux.using corre en el hilo que cancela
+// mientras otro puede estar comprimiendo; comprimir, terminar y cerrar comparten el lock del
+// compresor, asi el Deflater nativo se cierra entre dos trozos y nunca a mitad de uno
+public class CompresorGzip {
+
+    private final DataBufferFactory factory;
+
+    private final ByteArrayOutputStream pendiente = new ByteArrayOutputStream();
+
+    private final GZIPOutputStream gzip;
+
+    private boolean cerrado;
+
+    private CompresorGzip(DataBufferFactory factory) {
+        this.factory = factory;
+        try {
+            this.gzip = new GZIPOutputStream(pendiente, 8192);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Flux<DataBuffer> comprimir(Flux<DataBuffer> entrada, DataBufferFactory factory) {
+        return Flux.using(() -> new CompresorGzip(factory),
+                compresor -> entrada.map(compresor::comprimir)
+                        .concatWith(Mono.fromCallable(compresor::terminar))
+                        .filter(buffer -> {
+                            if (buffer.readableByteCount() > 0) {
+                                return true;
+                            }
+                            DataBufferUtils.release(buffer);
+                            return false;
+                        }),
+                CompresorGzip::cerrar);
+    }
+
+    private synchronized DataBuffer comprimir(DataBuffer buffer) {
+        if (cerrado) {
+            DataBufferUtils.release(buffer);
+            return factory.allocateBuffer(0);
+        }
+        try (InputStream contenido = buffer.asInputStream(true)) {
+            contenido.transferTo(gzip);
+            return drenar();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized DataBuffer terminar() throws IOException {
+        if (cerrado) {
+            return factory.allocateBuffer(0);
+        }
+        gzip.finish();
+        return drenar();
+    }
+
+    private DataBuffer drenar() {
+        byte[] bytes = pendiente.toByteArray();
+        pendiente.reset();
+        return factory.allocateBuffer(bytes.length).write(bytes);
+    }
+
+    // libera el Deflater nativo tambien si el cliente corta la descarga
+    private synchronized void cerrar() {
+        if (cerrado) {
+            return;
+        }
+        cerrado = true;
+        try {
+            gzip.close();
+        } catch (IOException ignorada) {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.springboot.webflux.app.csv;
+
+import com.example.springboot.webflux.app.models.documents.Producto;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// formato CSV (RFC 4180) del catalogo. La primera columna es el id: es el cursor con el
+// que se reanuda una exportacion cortada
+public final class CsvProductos {
+
+    public static final String CABECERA = "id,nombre,precio,createAt,categoria,foto\r\n";
+
+    private CsvProductos() {
+    }
+
+    public static void escribirFila(Producto p, StringBuilder salida) {
+        campo(p.getId(), salida).append(',');
+        campo(p.getNombre(), salida).append(',');
+        campo(p.getPrecio() != null ? p.getPrecio().toString() : null, salida).append(',');
+        campo(p.getCreateAt() != null ? p.getCreateAt().toInstant().toString() : null, salida).append(',');
+        campo(p.getCategoria() != null ? p.getCategoria().getNombre() : null, salida).append(',');
+        campo(p.getFoto(), salida).append("\r\n");
+    }
+
+    // registros completos a partir de los bytes subidos: las lineas se cortan a medida que llegan
+    // los buffers y un registro con saltos de linea entre comillas se junta antes de separarlo.
+    // Un registro de mas de maxRegistro caracteres (p.ej. una comilla sin cerrar) se descarta y
+    // sale como error de esa fila; una sola linea mas larga que eso no se puede saltar y corta
+    // la lectura (DataBufferLimitException del decoder)
+    public static Flux<Registro> registros(Flux<DataBuffer> contenido, int maxRegistro) {
+        StringDecoder decoder = StringDecoder.allMimeTypes(List.of("\n"), true);
+        decoder.setMaxInMemorySize(maxRegistro);
+        Flux<String> lineas = decoder.decode(contenido, ResolvableType.forClass(String.class), null, null);
+        return Flux.defer(() -> {
+            Acumulador acumulador = new Acumulador(maxRegistro);
+            return lineas.<Registro>handle((linea, sink) -> {
+                Registro registro = acumulador.agregar(linea);
+                if (registro != null) {
+                    sink.next(registro);
+                }
+            }).concatWith(Mono.fromSupplier(acumulador::restante));
+        });
+    }
+
+    static List<String> campos(String registro) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < registro.length(); i++) {
+            char c = registro.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < registro.length() && registro.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+
+    // campos del registro, o el motivo por el que no se pudo leer
+    public record Registro(List<String> campos, String error) {
+    }
+
+    // junta las lineas de un registro llevando la paridad de las comillas linea a linea, sin
+    // volver a recorrer lo acumulado
+    private static final class Acumulador {
+
+        private final int maximo;
+
+        private final StringBuilder pendiente = new StringBuilder();
+
+        private boolean enCurso;
+
+        private boolean comillasAbiertas;
+
+        private boolean excedido;
+
+        Acumulador(int maximo) {
+            this.maximo = maximo;
+        }
+
+        Registro agregar(String linea) {
+            String texto = linea.endsWith("\r") ? linea.substring(0, linea.length() - 1) : linea;
+            if (comillasImpares(texto)) {
+                comillasAbiertas = !comillasAbiertas;
+            }
+            if (!excedido) {
+                if (pendiente.length() + texto.length() + 1 > maximo) {
+                    // se sigue leyendo hasta que cierren las comillas, pero sin guardar nada
+                    excedido = true;
+                    pendiente.setLength(0);
+                } else {
+                    if (enCurso) {
+                        pendiente.append('\n');
+                    }
+                    pendiente.append(texto);
+                }
+            }
+            enCurso = true;
+            return comillasAbiertas ? null : terminar();
+        }
+
+        // lo que queda al acabar el archivo es un registro con las comillas sin cerrar
+        Registro restante() {
+            if (!enCurso) {
+                return null;
+            }
+            excedido = false;
+            pendiente.setLength(0);
+            enCurso = false;
+            return new Registro(null, "comillas sin cerrar al final del archivo");
+        }
+
+        private Registro terminar() {
+            String registro = pendiente.toString();
+            boolean descartado = excedido;
+            pendiente.setLength(0);
+            enCurso = false;
+            excedido = false;
+            if (descartado) {
+                return new Registro(null, "registro de mas de " + maximo + " caracteres");
+            }
+            return registro.isBlank() ? null : new Registro(campos(registro), null);
+        }
+
+        private static boolean comillasImpares(String texto) {
+            int comillas = 0;
+            for (int i = 0; i < texto.length(); i++) {
+                if (texto.charAt(i) == '"') {
+                    comillas++;
+                }
+            }
+            return comillas % 2 != 0;
+        }
+    }
+
+    private static StringBuilder campo(String valor, StringBuilder salida) {
+        if (valor == null) {
+            return salida;
+        }
+        boolean comillas = valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0
+                || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0;
+        if (!comillas) {
+            return salida.append(valor);
+        }
+        return salida.append('"').append(valor.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.springboot.webflux.app.csv;
+
+import java.util.Date;
+import java.util.List;
+
+public class EstadoImportacion {
+
+    public enum Estado { EN_CURSO, TERMINADA, FALLIDA }
+
+    private String id;
+
+    private Estado estado;
+
+    private long filas;
+
+    private long insertadas;
+
+    private long actualizadas;
+
+    private long errores;
+
+    // solo los primeros, para no crecer sin limite con un archivo lleno de errores
+    private List<String> detalleErrores;
+
+    private Date inicio;
+
+    private Date fin;
+
+    public EstadoImportacion() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public void setEstado(Estado estado) {
+        this.estado = estado;
+    }
+
+    public long getFilas() {
+        return filas;
+    }
+
+    public void setFilas(long filas) {
+        this.filas = filas;
+    }
+
+    public long getInsertadas() {
+        return insertadas;
+    }
+
+    public void setInsertadas(long insertadas) {
+        this.insertadas = insertadas;
+    }
+
+    public long getActualizadas() {
+        return actualizadas;
+    }
+
+    public void setActualizadas(long actualizadas) {
+        this.actualizadas = actualizadas;
+    }
+
+    public long getErrores() {
+        return errores;
+    }
+
+    public void setErrores(long errores) {
+        this.errores = errores;
+    }
+
+    public List<String> getDetalleErrores() {
+        return detalleErrores;
+    }
+
+    public void setDetalleErrores(List<String> detalleErrores) {
+        this.detalleErrores = detalleErrores;
+    }
+
+    public Date getInicio() {
+        return inicio;
+    }
+
+    public void setInicio(Date inicio) {
+        this.inicio = inicio;
+    }
+
+    public Date getFin() {
+        return fin;
+    }
+
+    public void setFin(Date fin) {
+        this.fin = fin;
+    }
+}
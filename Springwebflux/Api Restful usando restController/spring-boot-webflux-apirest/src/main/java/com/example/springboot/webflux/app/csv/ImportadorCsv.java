@@ -0,0 +1,287 @@
+package com.example.springboot.webflux.app.csv;
+
+import com.example.springboot.webflux.app.models.dao.CategoriaDao;
+import com.example.springboot.webflux.app.models.documents.Categoria;
+import com.example.springboot.webflux.app.models.documents.Producto;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// importacion de productos desde CSV en streaming: las filas se leen segun llegan los bytes,
+// se validan en paralelo y se guardan por lotes con upserts (por id si la fila lo trae, si
+// no por nombre). En memoria solo esta el lote en curso
+@Component
+public class ImportadorCsv {
+
+    private static final int MAX_DETALLE_ERRORES = 100;
+
+    private static final Duration RETENCION = Duration.ofHours(1);
+
+    @Autowired
+    private CategoriaDao categoriaDao;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${config.importacion.lote:500}")
+    private int lote;
+
+    // caracteres de un registro; uno mas largo cuenta como fila erronea
+    @Value("${config.importacion.max-registro:65536}")
+    private int maxRegistro;
+
+    // 0 = un hilo por nucleo
+    @Value("${config.importacion.paralelismo:0}")
+    private int paralelismo;
+
+    private final Map<String, Importacion> importaciones = new ConcurrentHashMap<>();
+
+    public Optional<EstadoImportacion> estado(String id) {
+        return Optional.ofNullable(importaciones.get(id)).map(Importacion::estado);
+    }
+
+    // emite el estado tras cada lote guardado y una ultima vez al terminar
+    public Flux<EstadoImportacion> importar(Flux<DataBuffer> contenido) {
+        return Flux.defer(() -> {
+            limpiarTerminadas();
+            Importacion importacion = new Importacion();
+            importaciones.put(importacion.id, importacion);
+
+            Map<String, Mono<Categoria>> categorias = new ConcurrentHashMap<>();
+            AtomicReference<Map<String, Integer>> columnas = new AtomicReference<>();
+            int hilos = paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors();
+
+            return CsvProductos.registros(contenido, maxRegistro)
+                    .index()
+                    .<Fila>handle((registro, sink) -> {
+                        CsvProductos.Registro leido = registro.getT2();
+                        if (registro.getT1() == 0) {
+                            if (leido.error() != null) {
+                                sink.error(new IllegalArgumentException("Cabecera ilegible: " + leido.error()));
+                                return;
+                            }
+                            columnas.set(indices(leido.campos()));
+                            return;
+                        }
+                        importacion.filas.incrementAndGet();
+                        long numero = registro.getT1() + 1;
+                        sink.next(leido.error() != null
+                                ? new Fila(numero, null, leido.error())
+                                : leer(numero, leido.campos(), columnas.get()));
+                    })
+                    .flatMapSequential(fila -> conCategoria(fila, categorias), 16)
+                    .parallel(hilos)
+                    .runOn(Schedulers.parallel())
+                    .map(this::validar)
+                    .sequential()
+                    .filter(fila -> {
+                        if (fila.error() != null) {
+                            importacion.error("Fila " + fila.numero() + ": " + fila.error());
+                            return false;
+                        }
+                        return true;
+                    })
+                    .buffer(lote)
+                    .concatMap(filas -> guardar(filas, importacion))
+                    .map(guardado -> importacion.estado())
+                    .concatWith(Mono.fromCallable(() -> {
+                        importacion.terminar(EstadoImportacion.Estado.TERMINADA, null);
+                        return importacion.estado();
+                    }))
+                    .onErrorResume(e -> {
+                        importacion.terminar(EstadoImportacion.Estado.FALLIDA, e.getMessage());
+                        return Mono.just(importacion.estado());
+                    });
+        });
+    }
+
+    private Map<String, Integer> indices(List<String> cabecera) {
+        Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < cabecera.size(); i++) {
+            indices.put(cabecera.get(i).trim(), i);
+        }
+        return indices;
+    }
+
+    private Fila leer(long numero, List<String> campos, Map<String, Integer> columnas) {
+        try {
+            Producto producto = new Producto();
+            producto.setId(valor(campos, columnas, "id"));
+            producto.setNombre(valor(campos, columnas, "nombre"));
+            String precio = valor(campos, columnas, "precio");
+            producto.setPrecio(precio != null ? Double.valueOf(precio) : null);
+            String createAt = valor(campos, columnas, "createAt");
+            producto.setCreateAt(createAt != null ? Date.from(Instant.parse(createAt)) : new Date());
+            String categoria = valor(campos, columnas, "categoria");
+            producto.setCategoria(categoria != null ? new Categoria(categoria) : null);
+            producto.setFoto(valor(campos, columnas, "foto"));
+            return new Fila(numero, producto, null);
+        } catch (RuntimeException e) {
+            return new Fila(numero, null, "formato invalido (" + e.getMessage() + ")");
+        }
+    }
+
+    private static String valor(List<String> campos, Map<String, Integer> columnas, String columna) {
+        Integer indice = columnas.get(columna);
+        if (indice == null || indice >= campos.size() || campos.get(indice).isEmpty()) {
+            return null;
+        }
+        return campos.get(indice);
+    }
+
+    // cada categoria se consulta una sola vez por importacion
+    private Mono<Fila> conCategoria(Fila fila, Map<String, Mono<Categoria>> categorias) {
+        if (fila.error() != null || fila.producto().getCategoria() == null) {
+            return Mono.just(fila);
+        }
+        String nombre = fila.producto().getCategoria().getNombre();
+        return categorias.computeIfAbsent(nombre, n -> categoriaDao.findByNombre(n).cache())
+                .map(categoria -> {
+                    fila.producto().setCategoria(categoria);
+                    return fila;
+                })
+                .defaultIfEmpty(new Fila(fila.numero(), null, "la categoria " + nombre + " no existe"));
+    }
+
+    private Fila validar(Fila fila) {
+        if (fila.error() != null) {
+            return fila;
+        }
+        Errors errors = new BeanPropertyBindingResult(fila.producto(), Producto.class.getName());
+        validator.validate(fila.producto(), errors);
+        if (!errors.hasErrors()) {
+            return fila;
+        }
+        String mensaje = errors.getFieldErrors().stream()
+                .map(fieldError -> "El campo " + fieldError.getField() + " " + fieldError.getDefaultMessage())
+                .reduce((a, b) -> a + "; " + b)
+                .orElse("invalida");
+        return new Fila(fila.numero(), null, mensaje);
+    }
+
+    private Mono<BulkWriteResult> guardar(List<Fila> filas, Importacion importacion) {
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Producto.class);
+        filas.forEach(fila -> bulk.upsert(clave(fila.producto()), actualizacion(fila.producto())));
+        return bulk.execute()
+                // en modo desordenado el resto del lote se guarda igual; se anotan las filas que fallaron
+                .onErrorResume(MongoBulkWriteException.class, e -> {
+                    e.getWriteErrors().forEach(error -> importacion.error("Fila "
+                            + filas.get(error.getIndex()).numero() + ": " + error.getMessage()));
+                    return Mono.just(e.getWriteResult());
+                })
+                .doOnNext(resultado -> {
+                    importacion.insertadas.addAndGet(resultado.getUpserts().size());
+                    importacion.actualizadas.addAndGet(resultado.getMatchedCount());
+                });
+    }
+
+    private static Query clave(Producto producto) {
+        return producto.getId() != null
+                ? new Query(Criteria.where("id").is(producto.getId()))
+                : new Query(Criteria.where("nombre").is(producto.getNombre()));
+    }
+
+    private static Update actualizacion(Producto producto) {
+        Update update = new Update()
+                .set("nombre", producto.getNombre())
+                .set("precio", producto.getPrecio())
+                .set("createAt", producto.getCreateAt())
+                .set("categoria", producto.getCategoria());
+        if (producto.getFoto() != null) {
+            update.set("foto", producto.getFoto());
+        }
+        return update;
+    }
+
+    private void limpiarTerminadas() {
+        Instant limite = Instant.now().minus(RETENCION);
+        importaciones.values().removeIf(importacion -> importacion.fin != null
+                && importacion.fin.toInstant().isBefore(limite));
+    }
+
+    private record Fila(long numero, Producto producto, String error) {
+    }
+
+    private static class Importacion {
+
+        private final String id = UUID.randomUUID().toString();
+
+        private final Date inicio = new Date();
+
+        private final AtomicLong filas = new AtomicLong();
+
+        private final AtomicLong insertadas = new AtomicLong();
+
+        private final AtomicLong actualizadas = new AtomicLong();
+
+        private final AtomicLong errores = new AtomicLong();
+
+        private final List<String> detalleErrores = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile EstadoImportacion.Estado estado = EstadoImportacion.Estado.EN_CURSO;
+
+        private volatile Date fin;
+
+        void error(String mensaje) {
+            if (errores.incrementAndGet() <= MAX_DETALLE_ERRORES) {
+                detalleErrores.add(mensaje);
+            }
+        }
+
+        void terminar(EstadoImportacion.Estado estado, String causa) {
+            if (causa != null) {
+                error("Importacion interrumpida: " + causa);
+            }
+            this.estado = estado;
+            this.fin = new Date();
+        }
+
+        EstadoImportacion estado() {
+            EstadoImportacion estado = new EstadoImportacion();
+            estado.setId(id);
+            estado.setEstado(this.estado);
+            estado.setFilas(filas.get());
+            estado.setInsertadas(insertadas.get());
+            estado.setActualizadas(actualizadas.get());
+            estado.setErrores(errores.get());
+            synchronized (detalleErrores) {
+                estado.setDetalleErrores(new ArrayList<>(detalleErrores));
+            }
+            estado.setInicio(inicio);
+            estado.setFin(fin);
+            return estado;
+        }
+    }
+}
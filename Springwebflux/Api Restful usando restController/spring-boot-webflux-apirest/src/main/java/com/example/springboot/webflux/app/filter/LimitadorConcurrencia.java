@@ -0,0 +1,81 @@
+package com.example.springboot.webflux.app.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// limite de concurrencia adaptativo tipo AIMD: sube de a uno por cada ventana de
+// muestras rapidas y baja multiplicativamente cuando la latencia de mongo supera el objetivo
+public class LimitadorConcurrencia {
+
+    private final int minimo;
+
+    private final int maximo;
+
+    private final long latenciaObjetivoNanos;
+
+    private final double factorReduccion;
+
+    private final long intervaloReduccionNanos;
+
+    private final AtomicInteger limite;
+
+    private final AtomicInteger enCurso = new AtomicInteger();
+
+    private final AtomicInteger muestrasRapidas = new AtomicInteger();
+
+    private final AtomicLong ultimaReduccion = new AtomicLong(System.nanoTime());
+
+    public LimitadorConcurrencia(int inicial, int minimo, int maximo, long latenciaObjetivoNanos,
+                                 double factorReduccion, long intervaloReduccionNanos) {
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.latenciaObjetivoNanos = latenciaObjetivoNanos;
+        this.factorReduccion = factorReduccion;
+        this.intervaloReduccionNanos = intervaloReduccionNanos;
+        this.limite = new AtomicInteger(Math.max(minimo, Math.min(maximo, inicial)));
+    }
+
+    public boolean intentarAdquirir() {
+        while (true) {
+            int actual = enCurso.get();
+            if (actual >= limite.get()) {
+                return false;
+            }
+            if (enCurso.compareAndSet(actual, actual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void liberar() {
+        enCurso.decrementAndGet();
+    }
+
+    public void registrarLatencia(long nanos) {
+        if (nanos > latenciaObjetivoNanos) {
+            // una sola reduccion por intervalo, para que una rafaga de muestras lentas
+            // no derrumbe el limite hasta el minimo de golpe
+            long ahora = System.nanoTime();
+            long ultima = ultimaReduccion.get();
+            if (ahora - ultima >= intervaloReduccionNanos && ultimaReduccion.compareAndSet(ultima, ahora)) {
+                limite.updateAndGet(l -> Math.max(minimo, (int) (l * factorReduccion)));
+                muestrasRapidas.set(0);
+            }
+            return;
+        }
+        // solo crece si el limite actual se esta usando de verdad
+        int l = limite.get();
+        if (enCurso.get() * 2 >= l && muestrasRapidas.incrementAndGet() >= l) {
+            muestrasRapidas.set(0);
+            limite.updateAndGet(actual -> Math.min(maximo, actual + 1));
+        }
+    }
+
+    public int getLimite() {
+        return limite.get();
+    }
+
+    public int getEnCurso() {
+        return enCurso.get();
+    }
+}
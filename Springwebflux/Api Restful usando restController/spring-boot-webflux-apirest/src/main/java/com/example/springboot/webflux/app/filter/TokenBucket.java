@@ -0,0 +1,56 @@
+package com.example.springboot.webflux.app.filter;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// token bucket sin locks: el estado (tokens + ultima recarga) es inmutable y se
+// reemplaza con compareAndSet, la recarga se calcula de forma perezosa al consumir
+public class TokenBucket {
+
+    private final double capacidad;
+
+    private final double tokensPorNano;
+
+    private final AtomicReference<Estado> estado;
+
+    // ultima peticion, aceptada o no: la recarga solo avanza con las aceptadas
+    private volatile long ultimoAcceso;
+
+    public TokenBucket(double tokensPorSegundo, double capacidad) {
+        this.capacidad = capacidad;
+        this.tokensPorNano = tokensPorSegundo / 1_000_000_000d;
+        this.estado = new AtomicReference<>(new Estado(capacidad, System.nanoTime()));
+        this.ultimoAcceso = System.nanoTime();
+    }
+
+    public boolean intentarConsumir() {
+        long ahora = System.nanoTime();
+        ultimoAcceso = ahora;
+        while (true) {
+            Estado actual = estado.get();
+            double tokens = recargar(actual, ahora);
+            if (tokens < 1) {
+                return false;
+            }
+            if (estado.compareAndSet(actual, new Estado(tokens - 1, Math.max(ahora, actual.ultimaRecarga())))) {
+                return true;
+            }
+        }
+    }
+
+    // un bucket lleno no tiene historial util y se puede descartar
+    public boolean lleno() {
+        return recargar(estado.get(), System.nanoTime()) >= capacidad;
+    }
+
+    public long inactivo(long ahora) {
+        return ahora - ultimoAcceso;
+    }
+
+    private double recargar(Estado actual, long ahora) {
+        long transcurrido = Math.max(0, ahora - actual.ultimaRecarga());
+        return Math.min(capacidad, actual.tokens() + transcurrido * tokensPorNano);
+    }
+
+    private record Estado(double tokens, long ultimaRecarga) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.springboot.webflux.app.fotos;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// e/s de archivos con FileChannel bloqueante en lugar de AsynchronousFileChannel: el trabajo
+// corre en el hilo que lo llama (el del bulkhead) y no en el pool de e/s asincrona de la jvm
+final class ArchivosBloqueantes {
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    // trozos de la subida que pueden esperar en memoria a que se escriban
+    private static final int TROZOS_EN_ESPERA = 4;
+
+    private ArchivosBloqueantes() {
+    }
+
+    // consume todo el contenido desde el hilo que llama, que tiene que poder bloquearse.
+    // Si la tarea se cancela, la interrupcion corta la espera y cancela tambien la subida
+    static long escribir(Flux<DataBuffer> contenido, Path destino) throws IOException {
+        long escritos = 0;
+        try (Stream<DataBuffer> trozos = contenido
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                .toStream(TROZOS_EN_ESPERA);
+             FileChannel canal = FileChannel.open(destino, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Iterator<DataBuffer> iterador = trozos.iterator();
+            while (iterador.hasNext()) {
+                DataBuffer trozo = iterador.next();
+                try (DataBuffer.ByteBufferIterator buffers = trozo.readableByteBuffers()) {
+                    while (buffers.hasNext()) {
+                        ByteBuffer buffer = buffers.next();
+                        while (buffer.hasRemaining()) {
+                            escritos += canal.write(buffer);
+                        }
+                    }
+                } finally {
+                    DataBufferUtils.release(trozo);
+                }
+            }
+        }
+        return escritos;
+    }
+
+    // Flux.generate por debajo: cada lectura ocurre en el hilo que hace el request, por eso
+    // hay que suscribirlo con Bulkhead.ejecutarFlujo
+    static Flux<DataBuffer> leer(Path origen) {
+        return DataBufferUtils.readByteChannel(() -> FileChannel.open(origen, StandardOpenOption.READ),
+                DefaultDataBufferFactory.sharedInstance, TAMANO_BUFFER);
+    }
+}
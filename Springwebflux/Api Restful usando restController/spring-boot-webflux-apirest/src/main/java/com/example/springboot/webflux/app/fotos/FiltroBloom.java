@@ -0,0 +1,72 @@
+package com.example.springboot.webflux.app.fotos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+// conjunto aproximado: "no contiene" es seguro, "contiene" puede ser un falso positivo.
+// Con la semilla distinta en cada ejecucion los falsos positivos no se repiten siempre
+// con los mismos nombres
+public class FiltroBloom {
+
+    private final BitSet bits;
+
+    private final int tamano;
+
+    private final int funciones;
+
+    private final long semilla;
+
+    public FiltroBloom(long elementosEsperados, double probabilidadFalsoPositivo, long semilla) {
+        long elementos = Math.max(1, elementosEsperados);
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-elementos * Math.log(probabilidadFalsoPositivo) / (ln2 * ln2));
+        this.tamano = (int) Math.max(64, Math.min(Integer.MAX_VALUE - 64, m));
+        this.funciones = Math.max(1, (int) Math.round((double) tamano / elementos * ln2));
+        this.bits = new BitSet(tamano);
+        this.semilla = semilla;
+    }
+
+    public void agregar(String valor) {
+        long hash = hash(valor);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < funciones; i++) {
+            bits.set(posicion(h1 + i * h2));
+        }
+    }
+
+    public boolean podriaContener(String valor) {
+        long hash = hash(valor);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < funciones; i++) {
+            if (!bits.get(posicion(h1 + i * h2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // bytes que ocupa el filtro, util para dimensionar la probabilidad de falsos positivos
+    public long getTamanoBytes() {
+        return tamano / 8;
+    }
+
+    private int posicion(int combinado) {
+        return (combinado & Integer.MAX_VALUE) % tamano;
+    }
+
+    // FNV-1a de 64 bits sobre los bytes UTF-8, mezclado con la semilla (finalizador de splitmix64)
+    private long hash(String valor) {
+        long h = 0xcbf29ce484222325L ^ semilla;
+        for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 30;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 27;
+        h *= 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}
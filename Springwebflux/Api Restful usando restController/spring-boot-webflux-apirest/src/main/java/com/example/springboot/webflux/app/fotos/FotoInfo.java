@@ -0,0 +1,30 @@
+package com.example.springboot.webflux.app.fotos;
+
+import java.time.Instant;
+
+public class FotoInfo {
+
+    private final String nombre;
+
+    private final long tamano;
+
+    private final Instant ultimaModificacion;
+
+    public FotoInfo(String nombre, long tamano, Instant ultimaModificacion) {
+        this.nombre = nombre;
+        this.tamano = tamano;
+        this.ultimaModificacion = ultimaModificacion;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public long getTamano() {
+        return tamano;
+    }
+
+    public Instant getUltimaModificacion() {
+        return ultimaModificacion;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.springboot.webflux.app.fotos;
+
+import com.example.springboot.webflux.app.bulkhead.Bulkhead;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.stream.Stream;
+
+// fotos en disco repartidas en dos niveles de subdirectorios (256 x 256) segun el hash del
+// nombre, asi ningun directorio acumula millones de archivos. Las fotos antiguas guardadas
+// directamente en la raiz se siguen encontrando
+public class LocalPhotoStore implements PhotoStore {
+
+    private final Path raiz;
+
+    private final Bulkhead bulkhead;
+
+    public LocalPhotoStore(Path raiz, Bulkhead bulkhead) {
+        this.raiz = raiz;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public Mono<Void> put(String nombre, Flux<DataBuffer> contenido) {
+        // toda la subida es una sola tarea del bulkhead: crear el directorio, escribir y mover
+        return bulkhead.ejecutar(() -> {
+            PhotoStore.validarNombre(nombre);
+            Path destino = rutaFragmentada(nombre);
+            Files.createDirectories(destino.getParent());
+            // se escribe a un temporal y se mueve al final: nadie ve una foto a medias. El temporal
+            // es unico para que dos subidas del mismo nombre a la vez no se pisen
+            Path temporal = Files.createTempFile(destino.getParent(), "." + nombre + ".", ".tmp");
+            try {
+                ArchivosBloqueantes.escribir(contenido, temporal);
+                return Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporal);
+                throw e;
+            }
+        }).then();
+    }
+
+    @Override
+    public Flux<DataBuffer> get(String nombre) {
+        return bulkhead.ejecutar(() -> existente(nombre))
+                .flatMapMany(ruta -> bulkhead.ejecutarFlujo(ArchivosBloqueantes.leer(ruta)));
+    }
+
+    @Override
+    public Mono<Void> delete(String nombre) {
+        return bulkhead.ejecutar(() -> {
+            PhotoStore.validarNombre(nombre);
+            return Files.deleteIfExists(rutaFragmentada(nombre)) | Files.deleteIfExists(raiz.resolve(nombre));
+        }).then();
+    }
+
+    @Override
+    public Mono<FotoInfo> head(String nombre) {
+        return bulkhead.ejecutar(() -> existente(nombre))
+                .flatMap(ruta -> bulkhead.ejecutar(() -> {
+                    BasicFileAttributes atributos = Files.readAttributes(ruta, BasicFileAttributes.class);
+                    return new FotoInfo(nombre, atributos.size(), atributos.lastModifiedTime().toInstant());
+                }));
+    }
+
+    @Override
+    public Flux<FotoInfo> list() {
+        // el recorrido es perezoso: se leen las entradas a medida que se piden, siempre en el bulkhead
+        return bulkhead.ejecutarFlujo(Flux.using(() -> Files.exists(raiz) ? Files.walk(raiz) : Stream.<Path>empty(),
+                        Flux::fromStream, Stream::close)
+                .filter(ruta -> !ruta.getFileName().toString().startsWith("."))
+                .concatMap(ruta -> Mono.fromCallable(() -> {
+                    BasicFileAttributes atributos = Files.readAttributes(ruta, BasicFileAttributes.class);
+                    return atributos.isRegularFile()
+                            ? new FotoInfo(ruta.getFileName().toString(), atributos.size(),
+                                    atributos.lastModifiedTime().toInstant())
+                            : null;
+                }).onErrorResume(NoSuchFileException.class, e -> Mono.empty())));
+    }
+
+    Path rutaFragmentada(String nombre) {
+        int hash = nombre.hashCode();
+        return raiz.resolve(String.format("%02x", (hash >>> 24) & 0xff))
+                .resolve(String.format("%02x", (hash >>> 16) & 0xff))
+                .resolve(nombre);
+    }
+
+    // null hace que fromCallable termine vacio cuando la foto no existe
+    private Path existente(String nombre) {
+        PhotoStore.validarNombre(nombre);
+        Path fragmentada = rutaFragmentada(nombre);
+        if (Files.exists(fragmentada)) {
+            return fragmentada;
+        }
+        Path antigua = raiz.resolve(nombre);
+        return Files.exists(antigua) ? antigua : null;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.springboot.webflux.app.fotos;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// almacenamiento de las fotos de producto, todo en streaming: ninguna operacion
+// carga el archivo completo en memoria
+public interface PhotoStore {
+
+    public Mono<Void> put(String nombre, Flux<DataBuffer> contenido);
+
+    // vacio si la foto no existe
+    public Flux<DataBuffer> get(String nombre);
+
+    public Mono<Void> delete(String nombre);
+
+    // vacio si la foto no existe
+    public Mono<FotoInfo> head(String nombre);
+
+    // todas las fotos guardadas, sin temporales de subidas en curso
+    public Flux<FotoInfo> list();
+
+    public static void validarNombre(String nombre) {
+        if (nombre == null || nombre.isBlank() || nombre.contains("/") || nombre.contains("\\")
+                || nombre.contains("..")) {
+            throw new IllegalArgumentException("Nombre de foto invalido: " + nombre);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.springboot.webflux.app.fotos;
+
+import com.example.springboot.webflux.app.models.documents.Producto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+// borra las fotos que ya no referencia ningun producto. Las referencias se cargan en un
+// filtro de Bloom (unos pocos bytes por producto); lo que el filtro descarta se confirma
+// contra Mongo antes de borrar, por si se guardo un producto despues de cargarlo.
+// Desactivado por defecto: solo debe activarse en el servicio duenio del directorio de fotos
+@Component
+@ConditionalOnProperty(name = "config.fotos.gc.habilitado", havingValue = "true")
+public class RecolectorFotos {
+
+    private static final Logger log = LoggerFactory.getLogger(RecolectorFotos.class);
+
+    @Autowired
+    private PhotoStore photoStore;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    // las fotos recientes pueden ser de una subida cuyo producto aun no se ha guardado
+    @Value("${config.fotos.gc.gracia:PT1H}")
+    private Duration gracia;
+
+    @Value("${config.fotos.gc.lote:100}")
+    private int lote;
+
+    @Value("${config.fotos.gc.pausa-lote:PT1S}")
+    private Duration pausaLote;
+
+    @Value("${config.fotos.gc.falsos-positivos:0.01}")
+    private double falsosPositivos;
+
+    private final Counter bytesRecuperados;
+
+    private final Counter fotosBorradas;
+
+    public RecolectorFotos(MeterRegistry registry) {
+        this.bytesRecuperados = Counter.builder("fotos.gc.bytes.recuperados")
+                .baseUnit("bytes")
+                .register(registry);
+        this.fotosBorradas = Counter.builder("fotos.gc.borradas")
+                .register(registry);
+    }
+
+    @Scheduled(initialDelayString = "${config.fotos.gc.retraso-inicial:PT5M}",
+            fixedDelayString = "${config.fotos.gc.intervalo:PT6H}")
+    public Mono<Void> recolectar() {
+        Instant limite = Instant.now().minus(gracia);
+        return referencias()
+                .flatMapMany(filtro -> photoStore.list()
+                        .filter(foto -> foto.getUltimaModificacion().isBefore(limite))
+                        .filter(foto -> !filtro.podriaContener(foto.getNombre())))
+                .concatMap(foto -> referenciada(foto.getNombre())
+                        .filter(referenciada -> !referenciada)
+                        .map(huerfana -> foto))
+                // lotes espaciados para no competir con las subidas por el disco o el bucket
+                .buffer(lote)
+                .delayElements(pausaLote)
+                .concatMap(fotos -> Flux.fromIterable(fotos).concatMap(this::borrar))
+                .reduce(0L, Long::sum)
+                .doOnNext(total -> log.info("Recolector de fotos: " + total + " bytes recuperados"))
+                .doOnError(e -> log.error("Recolector de fotos interrumpido", e))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private Mono<FiltroBloom> referencias() {
+        Query soloFoto = new Query(Criteria.where("foto").ne(null));
+        soloFoto.fields().include("foto");
+        return mongoTemplate.count(soloFoto, Producto.class)
+                .map(total -> new FiltroBloom(total, falsosPositivos, ThreadLocalRandom.current().nextLong()))
+                .flatMap(filtro -> mongoTemplate.find(soloFoto, Producto.class)
+                        .doOnNext(p -> filtro.agregar(p.getFoto()))
+                        .then(Mono.just(filtro)));
+    }
+
+    private Mono<Boolean> referenciada(String nombre) {
+        return mongoTemplate.exists(new Query(Criteria.where("foto").is(nombre)), Producto.class);
+    }
+
+    private Mono<Long> borrar(FotoInfo foto) {
+        return photoStore.delete(foto.getNombre())
+                .then(Mono.fromCallable(() -> {
+                    bytesRecuperados.increment(foto.getTamano());
+                    fotosBorradas.increment();
+                    return foto.getTamano();
+                }))
+                .onErrorResume(e -> {
+                    log.warn("No se pudo borrar la foto " + foto.getNombre() + ": " + e.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
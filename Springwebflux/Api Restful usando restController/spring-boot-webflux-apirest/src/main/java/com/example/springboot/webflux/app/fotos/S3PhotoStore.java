@@ -0,0 +1,185 @@
+package com.example.springboot.webflux.app.fotos;
+
+import com.example.springboot.webflux.app.bulkhead.Bulkhead;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// fotos en un bucket compatible con S3 (AWS, MinIO, ...) con urls path-style y firma V4.
+// S3 exige Content-Length en el PUT, asi que la subida pasa por un temporal en disco
+// (nunca por memoria) antes de enviarse en streaming; ese temporal se escribe y se lee
+// en el bulkhead
+public class S3PhotoStore implements PhotoStore {
+
+    private static final int CLAVES_POR_PAGINA = 1000;
+
+    private final WebClient client;
+
+    private final String endpoint;
+
+    private final String bucket;
+
+    private final Bulkhead bulkhead;
+
+    public S3PhotoStore(WebClient.Builder builder, String endpoint, String bucket, FirmaS3 firma, Bulkhead bulkhead) {
+        this.endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.bucket = bucket;
+        this.bulkhead = bulkhead;
+        this.client = builder
+                .filter(ExchangeFilterFunction.ofRequestProcessor(request -> Mono.just(ClientRequest.from(request)
+                        .headers(headers -> firma.firmar(request.method(), request.url(), headers))
+                        .build())))
+                .build();
+    }
+
+    @Override
+    public Mono<Void> put(String nombre, Flux<DataBuffer> contenido) {
+        return Mono.usingWhen(
+                bulkhead.ejecutar(() -> volcarATemporal(contenido)),
+                temporal -> bulkhead.ejecutar(() -> Files.size(temporal))
+                        .flatMap(tamano -> client.put()
+                                .uri(uri(nombre))
+                                .contentLength(tamano)
+                                .body(BodyInserters.fromDataBuffers(
+                                        bulkhead.ejecutarFlujo(ArchivosBloqueantes.leer(temporal))))
+                                .retrieve()
+                                .toBodilessEntity()),
+                temporal -> bulkhead.ejecutar(() -> Files.deleteIfExists(temporal)))
+                .then();
+    }
+
+    // el temporal se crea y se llena en la misma tarea; si falla se borra aqui mismo,
+    // porque usingWhen solo limpia un recurso que llego a emitirse
+    private static Path volcarATemporal(Flux<DataBuffer> contenido) throws IOException {
+        Path temporal = Files.createTempFile("foto-", ".upload");
+        try {
+            ArchivosBloqueantes.escribir(contenido, temporal);
+            return temporal;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+    }
+
+    @Override
+    public Flux<DataBuffer> get(String nombre) {
+        return client.get()
+                .uri(uri(nombre))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Flux.empty());
+    }
+
+    @Override
+    public Mono<Void> delete(String nombre) {
+        return client.delete()
+                .uri(uri(nombre))
+                .retrieve()
+                .toBodilessEntity()
+                .then();
+    }
+
+    @Override
+    public Mono<FotoInfo> head(String nombre) {
+        return client.head()
+                .uri(uri(nombre))
+                .exchangeToMono(response -> {
+                    if (response.statusCode().isSameCodeAs(HttpStatus.NOT_FOUND)) {
+                        return response.releaseBody().then(Mono.empty());
+                    }
+                    if (response.statusCode().isError()) {
+                        return response.createError();
+                    }
+                    long tamano = response.headers().contentLength().orElse(0);
+                    long modificado = response.headers().asHttpHeaders().getLastModified();
+                    return response.releaseBody().thenReturn(new FotoInfo(nombre, tamano,
+                            modificado > 0 ? Instant.ofEpochMilli(modificado) : Instant.EPOCH));
+                });
+    }
+
+    // ListObjectsV2 pagina a pagina: en memoria nunca hay mas de una pagina de claves
+    @Override
+    public Flux<FotoInfo> list() {
+        return pagina(null)
+                .expand(pagina -> pagina.siguiente() == null ? Mono.empty() : pagina(pagina.siguiente()))
+                .concatMapIterable(Pagina::fotos)
+                .filter(foto -> !foto.getNombre().startsWith("."));
+    }
+
+    private Mono<Pagina> pagina(String continuacion) {
+        String query = "list-type=2&max-keys=" + CLAVES_POR_PAGINA
+                + (continuacion == null ? "" : "&continuation-token=" + codificar(continuacion));
+        return client.get()
+                .uri(URI.create(endpoint + "/" + bucket + "?" + query))
+                .retrieve()
+                .bodyToMono(String.class)
+                .flatMap(xml -> Mono.fromCallable(() -> leerPagina(xml)));
+    }
+
+    private static Pagina leerPagina(String xml) throws XMLStreamException {
+        XMLInputFactory fabrica = XMLInputFactory.newFactory();
+        fabrica.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XMLStreamReader lector = fabrica.createXMLStreamReader(new StringReader(xml));
+        List<FotoInfo> fotos = new ArrayList<>();
+        String siguiente = null;
+        String clave = null;
+        long tamano = 0;
+        Instant modificado = Instant.EPOCH;
+        try {
+            while (lector.hasNext()) {
+                int evento = lector.next();
+                if (evento == XMLStreamConstants.START_ELEMENT) {
+                    switch (lector.getLocalName()) {
+                        case "Key" -> clave = lector.getElementText();
+                        case "Size" -> tamano = Long.parseLong(lector.getElementText());
+                        case "LastModified" -> modificado = Instant.parse(lector.getElementText());
+                        case "NextContinuationToken" -> siguiente = lector.getElementText();
+                        default -> { }
+                    }
+                } else if (evento == XMLStreamConstants.END_ELEMENT && "Contents".equals(lector.getLocalName())) {
+                    fotos.add(new FotoInfo(clave, tamano, modificado));
+                }
+            }
+        } finally {
+            lector.close();
+        }
+        return new Pagina(fotos, siguiente);
+    }
+
+    private URI uri(String nombre) {
+        PhotoStore.validarNombre(nombre);
+        return URI.create(endpoint + "/" + bucket + "/" + codificar(nombre));
+    }
+
+    // se codifica todo menos los caracteres no reservados, tal como lo espera la firma V4
+    private static String codificar(String valor) {
+        return URLEncoder.encode(valor, StandardCharsets.UTF_8)
+                .replace("+", "%20")
+                .replace("*", "%2A")
+                .replace("%7E", "~");
+    }
+
+    private record Pagina(List<FotoInfo> fotos, String siguiente) {
+    }
+}
@@ -1,16 +1,34 @@
 package com.example.springboot.webflux.app.models.dao;
 
 import com.example.springboot.webflux.app.models.documents.Producto;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.mongodb.repository.ReadPreference;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface ProductoDao  extends ReactiveMongoRepository<Producto, String> {
 
+    // solo para GET /api/productos, que tolera el retraso de un secundario y asi no carga al
+    // primario (sin replica set se lee del primario igual). findAll sigue en el primario
+    @ReadPreference("secondaryPreferred")
+    @Query("{}")
+    public Flux<Producto> listarTodos();
+
+    @Meta(maxExecutionTimeMs = 2000)
     public Mono<Producto> findByNombre(String nombre);
 
 
+    @Meta(maxExecutionTimeMs = 2000)
     @Query("{ 'nombre': ?0 }")
     public Mono<Producto> obtenerPorNombre(String nombre);
 
+    // recorridos completos en orden de _id, el cursor trae los documentos por lotes
+    @Meta(cursorBatchSize = 1000)
+    public Flux<Producto> findAllByOrderByIdAsc();
+
+    @Meta(cursorBatchSize = 1000)
+    public Flux<Producto> findByIdGreaterThanOrderByIdAsc(String id);
+
 }
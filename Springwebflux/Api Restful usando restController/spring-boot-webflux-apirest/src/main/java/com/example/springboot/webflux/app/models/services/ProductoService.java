@@ -9,6 +9,12 @@ public interface ProductoService {
 
     public Flux<Producto> findAll();
 
+    // puede leer de un secundario, no ve necesariamente lo recien escrito
+    public Flux<Producto> findAllListado();
+
+    // ordenado por id; since = ultimo id ya recibido, null para empezar desde el principio
+    public Flux<Producto> findAllDesde(String since);
+
     public Flux<Producto> findAllConNombreUpperCase();
 
     public Flux<Producto> findAllConNombreUpperCaseRepeat();
@@ -20,6 +26,8 @@ public interface ProductoService {
 
     public Mono<Void> delete(Producto producto);
 
+    public Mono<Void> deleteFoto(String foto);
+
     public Flux<Categoria> findAllCategorie();
 
 
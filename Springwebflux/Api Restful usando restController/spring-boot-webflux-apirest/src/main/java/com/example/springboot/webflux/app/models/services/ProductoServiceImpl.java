@@ -1,9 +1,12 @@
 package com.example.springboot.webflux.app.models.services;
 
+import com.example.springboot.webflux.app.fotos.PhotoStore;
 import com.example.springboot.webflux.app.models.dao.CategoriaDao;
 import com.example.springboot.webflux.app.models.dao.ProductoDao;
 import com.example.springboot.webflux.app.models.documents.Categoria;
 import com.example.springboot.webflux.app.models.documents.Producto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
@@ -18,11 +21,27 @@ public class ProductoServiceImpl implements ProductoService{
 
     @Autowired
     private CategoriaDao categoriaDao;
+
+    @Autowired
+    private PhotoStore photoStore;
+
+    private static final Logger log = LoggerFactory.getLogger(ProductoServiceImpl.class);
+
     @Override
     public Flux<Producto> findAll() {
         return dao.findAll();
     }
 
+    @Override
+    public Flux<Producto> findAllListado() {
+        return dao.listarTodos();
+    }
+
+    @Override
+    public Flux<Producto> findAllDesde(String since) {
+        return since == null ? dao.findAllByOrderByIdAsc() : dao.findByIdGreaterThanOrderByIdAsc(since);
+    }
+
     @Override
     public Flux<Producto> findAllConNombreUpperCase() {
         return dao.findAll().map(producto -> {
@@ -49,7 +68,21 @@ public class ProductoServiceImpl implements ProductoService{
 
     @Override
     public Mono<Void> delete(Producto producto) {
-        return dao.delete(producto);
+        return dao.delete(producto)
+                .then(deleteFoto(producto.getFoto()));
+    }
+
+    // si el borrado falla la foto queda huerfana y la limpia el RecolectorFotos
+    @Override
+    public Mono<Void> deleteFoto(String foto) {
+        if (foto == null || foto.isBlank()) {
+            return Mono.empty();
+        }
+        return photoStore.delete(foto)
+                .onErrorResume(e -> {
+                    log.warn("No se pudo borrar la foto " + foto + ": " + e.getMessage());
+                    return Mono.empty();
+                });
     }
 
     @Override
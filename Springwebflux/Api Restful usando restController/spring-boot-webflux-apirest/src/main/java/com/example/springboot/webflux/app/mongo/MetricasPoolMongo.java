@@ -0,0 +1,51 @@
+package com.example.springboot.webflux.app.mongo;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// latencia de obtener una conexion del pool y operaciones esperando una. Complementa las
+// metricas mongodb.driver.pool.* de spring boot (tamano, en uso, cola por servidor)
+public class MetricasPoolMongo implements ConnectionPoolListener {
+
+    private final AtomicInteger esperando = new AtomicInteger();
+
+    private final Timer obtenidas;
+
+    private final Timer fallidas;
+
+    public MetricasPoolMongo(MeterRegistry registry) {
+        this.obtenidas = Timer.builder("mongodb.pool.checkout")
+                .tag("resultado", "ok")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.fallidas = Timer.builder("mongodb.pool.checkout")
+                .tag("resultado", "fallo")
+                .register(registry);
+        Gauge.builder("mongodb.pool.esperando", esperando, AtomicInteger::get).register(registry);
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        esperando.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        esperando.decrementAndGet();
+        obtenidas.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        esperando.decrementAndGet();
+        fallidas.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+}
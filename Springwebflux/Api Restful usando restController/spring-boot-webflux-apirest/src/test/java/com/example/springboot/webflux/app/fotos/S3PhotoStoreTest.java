@@ -0,0 +1,146 @@
+package com.example.springboot.webflux.app.fotos;
+
+import com.example.springboot.webflux.app.bulkhead.Bulkhead;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+
+// S3PhotoStore contra un bucket S3 simulado en un puerto local, que valida la firma V4 de
+// cada peticion con su propio calculo
+class S3PhotoStoreTest {
+
+	private static final String ACCESS_KEY = "AKIDEXAMPLE";
+
+	private static final String SECRET_KEY = "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY";
+
+	private static final String REGION = "us-east-1";
+
+	private static final String BUCKET = "fotos";
+
+	private static final Duration ESPERA = Duration.ofSeconds(10);
+
+	private S3Simulado s3;
+
+	private Bulkhead bulkhead;
+
+	private S3PhotoStore store;
+
+	@BeforeEach
+	void iniciar() {
+		s3 = new S3Simulado(ACCESS_KEY, SECRET_KEY, REGION, BUCKET, 2);
+		s3.iniciar();
+		bulkhead = new Bulkhead("test", Schedulers.boundedElastic(), 10, new SimpleMeterRegistry());
+		store = new S3PhotoStore(WebClient.builder(), s3.endpoint(), BUCKET, new FirmaS3(ACCESS_KEY, SECRET_KEY, REGION),
+				bulkhead);
+	}
+
+	@AfterEach
+	void cerrar() {
+		s3.cerrar();
+	}
+
+	@Test
+	void putGetHeadDelete() {
+		byte[] foto = new byte[200 * 1024 + 17];
+		new Random(42).nextBytes(foto);
+		Instant antes = Instant.now().minusSeconds(1);
+
+		store.put("foto.jpg", trozos(foto, 8192)).block(ESPERA);
+		Assertions.assertArrayEquals(foto, s3.contenido("foto.jpg"));
+		Assertions.assertEquals(0, s3.sinContentLength());
+
+		Assertions.assertArrayEquals(foto, leer(store.get("foto.jpg")));
+
+		FotoInfo info = store.head("foto.jpg").block(ESPERA);
+		Assertions.assertNotNull(info);
+		Assertions.assertEquals("foto.jpg", info.getNombre());
+		Assertions.assertEquals(foto.length, info.getTamano());
+		Assertions.assertFalse(info.getUltimaModificacion().isBefore(antes.minusSeconds(1)));
+
+		store.delete("foto.jpg").block(ESPERA);
+		Assertions.assertNull(s3.contenido("foto.jpg"));
+		Assertions.assertNull(store.head("foto.jpg").block(ESPERA));
+		Assertions.assertEquals(0, leer(store.get("foto.jpg")).length);
+		Assertions.assertEquals(0, s3.rechazadas());
+	}
+
+	// la ruta firmada tiene que ser la misma que la codificada en la url
+	@Test
+	void nombreConCaracteresCodificados() {
+		String nombre = "mi foto (1)+50%~ok.jpg";
+		byte[] foto = "contenido".getBytes(StandardCharsets.UTF_8);
+
+		store.put(nombre, trozos(foto, 4)).block(ESPERA);
+
+		Assertions.assertArrayEquals(foto, s3.contenido(nombre));
+		Assertions.assertArrayEquals(foto, leer(store.get(nombre)));
+		Assertions.assertEquals(foto.length, store.head(nombre).block(ESPERA).getTamano());
+		Assertions.assertEquals(0, s3.rechazadas());
+	}
+
+	// el simulado devuelve paginas de 2 claves y tokens en base64 (con '='): la query de cada
+	// pagina se firma ordenada y codificada
+	@Test
+	void listRecorreTodasLasPaginas() {
+		for (int i = 0; i < 5; i++) {
+			s3.guardar("foto-" + i + ".jpg", new byte[i + 1]);
+		}
+		s3.guardar(".subida-en-curso", new byte[3]);
+
+		List<FotoInfo> fotos = store.list().collectList().block(ESPERA);
+
+		Assertions.assertEquals(List.of("foto-0.jpg", "foto-1.jpg", "foto-2.jpg", "foto-3.jpg", "foto-4.jpg"),
+				fotos.stream().map(FotoInfo::getNombre).toList());
+		Assertions.assertEquals(5, fotos.get(4).getTamano());
+		Assertions.assertEquals(0, s3.rechazadas());
+	}
+
+	@Test
+	void firmaConOtraClaveSeRechaza() {
+		S3PhotoStore otro = new S3PhotoStore(WebClient.builder(), s3.endpoint(), BUCKET,
+				new FirmaS3(ACCESS_KEY, "otra-clave", REGION), bulkhead);
+
+		Assertions.assertThrows(WebClientResponseException.Forbidden.class,
+				() -> otro.put("foto.jpg", trozos(new byte[10], 4)).block(ESPERA));
+		Assertions.assertNull(s3.contenido("foto.jpg"));
+		Assertions.assertEquals(1, s3.rechazadas());
+	}
+
+	@Test
+	void nombreInvalidoNoLlegaAlBucket() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> store.get("../otro-bucket/x").blockLast(ESPERA));
+		Assertions.assertEquals(0, s3.rechazadas());
+	}
+
+	private static Flux<DataBuffer> trozos(byte[] contenido, int tamano) {
+		return Flux.range(0, (contenido.length + tamano - 1) / tamano)
+				.map(i -> DefaultDataBufferFactory.sharedInstance.wrap(ByteBuffer.wrap(contenido, i * tamano,
+						Math.min(tamano, contenido.length - i * tamano))));
+	}
+
+	private static byte[] leer(Flux<DataBuffer> contenido) {
+		DataBuffer junto = DataBufferUtils.join(contenido)
+				.defaultIfEmpty(DefaultDataBufferFactory.sharedInstance.allocateBuffer(0))
+				.block(ESPERA);
+		byte[] bytes = new byte[junto.readableByteCount()];
+		junto.read(bytes);
+		DataBufferUtils.release(junto);
+		return bytes;
+	}
+}
@@ -0,0 +1,227 @@
+package com.example.springboot.webflux.app.fotos;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// bucket S3 en memoria para las pruebas de S3PhotoStore: PUT, GET, HEAD, DELETE de objetos y
+// ListObjectsV2 con paginas de pocas claves. Cada peticion se comprueba contra una firma V4
+// calculada aqui por separado (no con FirmaS3) y se responde 403 si no coincide
+class S3Simulado {
+
+	private final String accessKey;
+
+	private final String secretKey;
+
+	private final String region;
+
+	private final String bucket;
+
+	private final int clavesPorPagina;
+
+	private final NavigableMap<String, Objeto> objetos = new ConcurrentSkipListMap<>();
+
+	private final AtomicInteger rechazadas = new AtomicInteger();
+
+	private final AtomicInteger sinContentLength = new AtomicInteger();
+
+	private DisposableServer servidor;
+
+	S3Simulado(String accessKey, String secretKey, String region, String bucket, int clavesPorPagina) {
+		this.accessKey = accessKey;
+		this.secretKey = secretKey;
+		this.region = region;
+		this.bucket = bucket;
+		this.clavesPorPagina = clavesPorPagina;
+	}
+
+	void iniciar() {
+		servidor = HttpServer.create()
+				.host("localhost")
+				.port(0)
+				.handle(this::atender)
+				.bindNow();
+	}
+
+	void cerrar() {
+		servidor.disposeNow();
+	}
+
+	String endpoint() {
+		return "http://localhost:" + servidor.port();
+	}
+
+	void guardar(String clave, byte[] contenido) {
+		objetos.put(clave, new Objeto(contenido, Instant.now()));
+	}
+
+	byte[] contenido(String clave) {
+		Objeto objeto = objetos.get(clave);
+		return objeto == null ? null : objeto.contenido();
+	}
+
+	int rechazadas() {
+		return rechazadas.get();
+	}
+
+	int sinContentLength() {
+		return sinContentLength.get();
+	}
+
+	private Publisher<Void> atender(HttpServerRequest request, HttpServerResponse response) {
+		if (!firmaValida(request)) {
+			rechazadas.incrementAndGet();
+			return response.status(HttpResponseStatus.FORBIDDEN).send();
+		}
+		String uri = request.uri();
+		int inicioQuery = uri.indexOf('?');
+		String ruta = inicioQuery < 0 ? uri : uri.substring(0, inicioQuery);
+		String query = inicioQuery < 0 ? "" : uri.substring(inicioQuery + 1);
+		if (ruta.equals("/" + bucket) && request.method().equals(HttpMethod.GET)) {
+			return listar(query, response);
+		}
+		if (!ruta.startsWith("/" + bucket + "/")) {
+			return response.status(HttpResponseStatus.NOT_FOUND).send();
+		}
+		String clave = URLDecoder.decode(ruta.substring(bucket.length() + 2).replace("+", "%2B"), StandardCharsets.UTF_8);
+		Objeto objeto = objetos.get(clave);
+		if (request.method().equals(HttpMethod.PUT)) {
+			if (!request.requestHeaders().contains(HttpHeaderNames.CONTENT_LENGTH)) {
+				sinContentLength.incrementAndGet();
+				return response.status(HttpResponseStatus.LENGTH_REQUIRED).send();
+			}
+			return request.receive().aggregate().asByteArray()
+					.defaultIfEmpty(new byte[0])
+					.flatMap(bytes -> {
+						guardar(clave, bytes);
+						return Mono.from(response.status(HttpResponseStatus.OK).send());
+					});
+		}
+		if (request.method().equals(HttpMethod.DELETE)) {
+			objetos.remove(clave);
+			return response.status(HttpResponseStatus.NO_CONTENT).send();
+		}
+		if (objeto == null) {
+			return response.status(HttpResponseStatus.NOT_FOUND).send();
+		}
+		response.header(HttpHeaderNames.LAST_MODIFIED,
+				DateTimeFormatter.RFC_1123_DATE_TIME.format(objeto.modificado().atOffset(ZoneOffset.UTC)));
+		if (request.method().equals(HttpMethod.HEAD)) {
+			return response.header(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(objeto.contenido().length)).send();
+		}
+		return response.sendByteArray(Mono.just(objeto.contenido()));
+	}
+
+	// el token de continuacion es la ultima clave de la pagina en base64: sus '=' (y '+' o '/')
+	// el cliente los tiene que codificar igual en la url y en la firma
+	private Publisher<Void> listar(String query, HttpServerResponse response) {
+		Map<String, String> parametros = Arrays.stream(query.split("&"))
+				.map(parametro -> parametro.split("=", 2))
+				.collect(Collectors.toMap(p -> p[0],
+						p -> p.length > 1 ? URLDecoder.decode(p[1], StandardCharsets.UTF_8) : ""));
+		String token = parametros.get("continuation-token");
+		NavigableMap<String, Objeto> restantes = token == null ? objetos
+				: objetos.tailMap(new String(Base64.getDecoder().decode(token), StandardCharsets.UTF_8), false);
+		List<String> pagina = new ArrayList<>();
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<ListBucketResult>");
+		for (Map.Entry<String, Objeto> entrada : restantes.entrySet()) {
+			if (pagina.size() == clavesPorPagina) {
+				break;
+			}
+			pagina.add(entrada.getKey());
+			xml.append("<Contents><Key>").append(entrada.getKey()).append("</Key><LastModified>")
+					.append(entrada.getValue().modificado()).append("</LastModified><Size>")
+					.append(entrada.getValue().contenido().length).append("</Size></Contents>");
+		}
+		boolean truncada = !pagina.isEmpty() && objetos.higherKey(pagina.get(pagina.size() - 1)) != null;
+		xml.append("<IsTruncated>").append(truncada).append("</IsTruncated>");
+		if (truncada) {
+			xml.append("<NextContinuationToken>")
+					.append(Base64.getEncoder().encodeToString(pagina.get(pagina.size() - 1).getBytes(StandardCharsets.UTF_8)))
+					.append("</NextContinuationToken>");
+		}
+		xml.append("</ListBucketResult>");
+		return response.header(HttpHeaderNames.CONTENT_TYPE, "application/xml").sendString(Mono.just(xml.toString()));
+	}
+
+	private boolean firmaValida(HttpServerRequest request) {
+		String autorizacion = request.requestHeaders().get(HttpHeaderNames.AUTHORIZATION);
+		String fechaHora = request.requestHeaders().get("x-amz-date");
+		String contenido = request.requestHeaders().get("x-amz-content-sha256");
+		if (autorizacion == null || fechaHora == null || contenido == null) {
+			return false;
+		}
+		String fecha = fechaHora.substring(0, 8);
+		String alcance = fecha + "/" + region + "/s3/aws4_request";
+		String uri = request.uri();
+		int inicioQuery = uri.indexOf('?');
+		String ruta = inicioQuery < 0 ? uri : uri.substring(0, inicioQuery);
+		String query = inicioQuery < 0 ? "" : Arrays.stream(uri.substring(inicioQuery + 1).split("&"))
+				.map(parametro -> parametro.contains("=") ? parametro : parametro + "=")
+				.sorted()
+				.collect(Collectors.joining("&"));
+		String canonica = String.join("\n", request.method().name(), ruta, query,
+				"host:" + request.requestHeaders().get(HttpHeaderNames.HOST),
+				"x-amz-content-sha256:" + contenido,
+				"x-amz-date:" + fechaHora,
+				"",
+				"host;x-amz-content-sha256;x-amz-date",
+				contenido);
+		String texto = String.join("\n", "AWS4-HMAC-SHA256", fechaHora, alcance, sha256(canonica));
+		byte[] clave = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), fecha);
+		for (String parte : new String[]{region, "s3", "aws4_request"}) {
+			clave = hmac(clave, parte);
+		}
+		String esperada = "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + alcance
+				+ ", SignedHeaders=host;x-amz-content-sha256;x-amz-date, Signature="
+				+ HexFormat.of().formatHex(hmac(clave, texto));
+		return esperada.equals(autorizacion);
+	}
+
+	private static String sha256(String texto) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+					.digest(texto.getBytes(StandardCharsets.UTF_8)));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] hmac(byte[] clave, String texto) {
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(clave, "HmacSHA256"));
+			return mac.doFinal(texto.getBytes(StandardCharsets.UTF_8));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private record Objeto(byte[] contenido, Instant modificado) {
+	}
+}
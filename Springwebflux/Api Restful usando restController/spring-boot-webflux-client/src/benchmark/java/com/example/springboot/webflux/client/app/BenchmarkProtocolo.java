@@ -0,0 +1,153 @@
+package com.example.springboot.webflux.client.app;
+
+import com.example.springboot.webflux.client.app.models.Categoria;
+import com.example.springboot.webflux.client.app.models.Producto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// GET del listado del gateway al backend (findAll: json decodificado a Producto) con el
+// HttpClient configurado como en AppConfig, solo http/1.1 o con h2c por upgrade
+// (config.backend.http2). El backend es un servidor reactor netty en este proceso que
+// acepta los dos protocolos y devuelve siempre el mismo json, asi lo que cambia es el
+// transporte: conexiones abiertas, latencia y cpu. La cpu es la del proceso entero
+// (cliente y backend simulado), sirve para comparar los dos modos entre si.
+// Uso: gradle benchmarkProtocolo -Pproductos=100 -Pconcurrencia=64 -Ppeticiones=20000 -PmaxConexiones=500
+public class BenchmarkProtocolo {
+
+    private static final com.sun.management.OperatingSystemMXBean sistema =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int productos = argumento(args, 0, 100);
+        int concurrencia = argumento(args, 1, 64);
+        int peticiones = argumento(args, 2, 20000);
+        int maxConexiones = argumento(args, 3, 500);
+
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().modules(new BlackbirdModule()).build();
+        byte[] json = mapper.writeValueAsBytes(listado(productos));
+        AtomicInteger conexiones = new AtomicInteger();
+        AtomicInteger enH2 = new AtomicInteger();
+        DisposableServer backend = HttpServer.create()
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .doOnChannelInit((observador, canal, direccion) -> conexiones.incrementAndGet())
+                .route(rutas -> rutas.get("/api/productos", (request, response) -> {
+                    if (request.version().majorVersion() == 2) {
+                        enH2.incrementAndGet();
+                    }
+                    return response.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .sendByteArray(Mono.just(json));
+                }))
+                .bindNow();
+        try {
+            System.out.println("JVM " + Runtime.version() + ", " + Runtime.getRuntime().availableProcessors()
+                    + " cpu, " + productos + " productos (" + json.length / 1024 + " KB de json), concurrencia "
+                    + concurrencia + ", " + peticiones + " peticiones, hasta " + maxConexiones + " conexiones");
+            System.out.printf("%-10s %10s %10s %10s %12s %11s %8s%n", "protocolo", "ops/s", "p50 ms", "p99 ms",
+                    "cpu us/op", "conexiones", "% h2");
+            for (boolean http2 : new boolean[]{false, true}) {
+                ConnectionProvider pool = ConnectionProvider.builder("benchmark")
+                        .maxConnections(maxConexiones)
+                        .build();
+                WebClient client = cliente(pool, http2, backend.port(), mapper);
+                try {
+                    // calentamiento: abre las conexiones (y hace el upgrade) y deja compilar al jit.
+                    // Las conexiones se cuentan desde aqui: son las tcp que acepta el backend con este pool
+                    conexiones.set(0);
+                    correr(client, concurrencia, peticiones / 5);
+                    enH2.set(0);
+                    Resultado r = correr(client, concurrencia, peticiones);
+                    System.out.printf("%-10s %10.1f %10.2f %10.2f %12.1f %11d %8.1f%n", http2 ? "h2c" : "http/1.1",
+                            r.opsPorSegundo(), r.p50(), r.p99(), r.cpuPorOperacion(), conexiones.get(),
+                            100.0 * enH2.get() / peticiones);
+                } finally {
+                    pool.disposeLater().block();
+                }
+            }
+        } finally {
+            backend.disposeNow();
+        }
+    }
+
+    // la misma configuracion de protocolo que AppConfig.registrarWebClient
+    private static WebClient cliente(ConnectionProvider pool, boolean http2, int puerto, ObjectMapper mapper) {
+        HttpProtocol[] protocolos = http2 ? new HttpProtocol[]{HttpProtocol.HTTP11, HttpProtocol.H2C}
+                : new HttpProtocol[]{HttpProtocol.HTTP11};
+        HttpClient httpClient = HttpClient.create(pool).protocol(protocolos);
+        return WebClient.builder()
+                .baseUrl("http://localhost:" + puerto + "/api/productos")
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(configurer -> {
+                    configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(mapper));
+                    configurer.defaultCodecs().maxInMemorySize(-1);
+                })
+                .build();
+    }
+
+    private static Resultado correr(WebClient client, int concurrencia, int peticiones) {
+        long[] latencias = new long[peticiones];
+        long cpuInicial = sistema.getProcessCpuTime();
+        long inicio = System.nanoTime();
+        Flux.range(0, peticiones)
+                .flatMap(i -> Mono.defer(() -> {
+                    long comienzo = System.nanoTime();
+                    return client.get()
+                            .accept(MediaType.APPLICATION_JSON)
+                            .retrieve()
+                            .bodyToFlux(Producto.class)
+                            .then()
+                            .doOnSuccess(v -> latencias[i] = System.nanoTime() - comienzo);
+                }), concurrencia)
+                .blockLast();
+        long total = System.nanoTime() - inicio;
+        long cpu = sistema.getProcessCpuTime() - cpuInicial;
+        Arrays.sort(latencias);
+        return new Resultado(peticiones * 1e9 / total, percentil(latencias, 0.50), percentil(latencias, 0.99),
+                cpu / 1e3 / peticiones);
+    }
+
+    private static List<Producto> listado(int productos) {
+        List<Producto> listado = new ArrayList<>();
+        for (int i = 0; i < productos; i++) {
+            Categoria categoria = new Categoria("Categoria " + i % 10);
+            categoria.setId(String.format("%024x", i % 10));
+            Producto producto = new Producto("Producto de prueba " + i, 10.0 + i, categoria);
+            producto.setId(String.format("%024x", 1000 + i));
+            producto.setCreateAt(new Date());
+            producto.setFoto(i + "-foto.jpg");
+            listado.add(producto);
+        }
+        return listado;
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        return ordenadas[(int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1)] / 1e6;
+    }
+
+    private static int argumento(String[] args, int posicion, int defecto) {
+        return args.length > posicion ? Integer.parseInt(args[posicion]) : defecto;
+    }
+
+    private record Resultado(double opsPorSegundo, double p50, double p99, double cpuPorOperacion) {
+    }
+}
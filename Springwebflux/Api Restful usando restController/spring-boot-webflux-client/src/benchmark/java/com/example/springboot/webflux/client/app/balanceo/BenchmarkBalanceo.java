@@ -0,0 +1,158 @@
+package com.example.springboot.webflux.client.app.balanceo;
+
+import com.example.springboot.webflux.client.app.errores.TraductorErrores;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// MenorCargaLoadBalancer contra el RoundRobinLoadBalancer de spring cloud con instancias
+// simuladas, sin red: cada instancia atiende con una latencia base (+-20%) que crece cuando
+// tiene mas peticiones en vuelo que capacidad, y unas cuantas son varias veces mas lentas.
+// La carga de cada instancia se mide con el mismo CargaInstancias.Peticion que usa el filtro
+// del WebClient. Se imprime el reparto hacia las lentas y la latencia vista por el cliente.
+// Uso: gradle benchmarkBalanceo -Pinstancias=10 -Plentas=2 -Pconcurrencia=64 -Poperaciones=20000
+public class BenchmarkBalanceo {
+
+    private static final String SERVICIO = "backend";
+
+    private static final long LATENCIA_BASE_MS = 10;
+
+    private static final long FACTOR_LENTAS = 10;
+
+    private static final int CAPACIDAD = 8;
+
+    public static void main(String[] args) {
+        int instancias = argumento(args, 0, 10);
+        int lentas = argumento(args, 1, 2);
+        int concurrencia = argumento(args, 2, 64);
+        int operaciones = argumento(args, 3, 20000);
+
+        System.out.println("JVM " + Runtime.version() + ", " + instancias + " instancias (" + lentas + " lentas, x"
+                + FACTOR_LENTAS + "), latencia base " + LATENCIA_BASE_MS + " ms, capacidad " + CAPACIDAD
+                + ", concurrencia " + concurrencia + ", " + operaciones + " operaciones");
+        System.out.printf("%-12s %10s %10s %10s %10s %12s%n", "balanceador", "ops/s", "p50 ms", "p99 ms", "p999 ms",
+                "% a lentas");
+
+        for (boolean menorCarga : new boolean[]{false, true}) {
+            List<Simulada> simuladas = simuladas(instancias, lentas);
+            ObjectProvider<ServiceInstanceListSupplier> supplier = proveedor(ServiceInstanceListSuppliers.from(SERVICIO,
+                    simuladas.stream().map(Simulada::instancia).toArray(ServiceInstance[]::new)));
+            CargaInstancias cargas = nuevasCargas();
+            ReactorServiceInstanceLoadBalancer balanceador = menorCarga
+                    ? new MenorCargaLoadBalancer(supplier, cargas)
+                    : new RoundRobinLoadBalancer(supplier, SERVICIO);
+
+            // calentamiento: la media de cada instancia parte de latencia-inicial
+            correr(balanceador, cargas, simuladas, concurrencia, operaciones / 10);
+            imprimir(menorCarga ? "menor-carga" : "round-robin",
+                    correr(balanceador, cargas, simuladas, concurrencia, operaciones));
+        }
+    }
+
+    private static Resultado correr(ReactorServiceInstanceLoadBalancer balanceador, CargaInstancias cargas,
+                                    List<Simulada> simuladas, int concurrencia, int operaciones) {
+        Map<String, Simulada> porClave = new HashMap<>();
+        simuladas.forEach(s -> porClave.put(Hedging.clave(s.instancia()), s));
+        long[] latencias = new long[operaciones];
+        AtomicInteger aLentas = new AtomicInteger();
+        long inicio = System.nanoTime();
+        Flux.range(0, operaciones)
+                .flatMap(i -> Mono.defer(() -> {
+                    long comienzo = System.nanoTime();
+                    return balanceador.choose(new DefaultRequest<>())
+                            .flatMap(respuesta -> {
+                                Simulada simulada = porClave.get(Hedging.clave(respuesta.getServer()));
+                                if (simulada.lenta()) {
+                                    aLentas.incrementAndGet();
+                                }
+                                CargaInstancias.Peticion peticion = cargas.new Peticion();
+                                peticion.iniciar(simulada.instancia());
+                                return simulada.atender().doOnSuccess(v -> peticion.terminar(false));
+                            })
+                            .doOnSuccess(v -> latencias[i] = System.nanoTime() - comienzo);
+                }), concurrencia)
+                .blockLast();
+        long total = System.nanoTime() - inicio;
+        Arrays.sort(latencias);
+        return new Resultado(operaciones * 1e9 / total, percentil(latencias, 0.50), percentil(latencias, 0.99),
+                percentil(latencias, 0.999), 100.0 * aLentas.get() / operaciones);
+    }
+
+    // las lentas son las primeras: el round robin empieza en una posicion al azar igualmente
+    private static List<Simulada> simuladas(int instancias, int lentas) {
+        List<Simulada> simuladas = new ArrayList<>();
+        for (int i = 0; i < instancias; i++) {
+            ServiceInstance instancia = new DefaultServiceInstance(SERVICIO + "-" + i, SERVICIO, "10.0.0." + (i + 1),
+                    8080, false);
+            simuladas.add(new Simulada(instancia, i < lentas, new AtomicInteger()));
+        }
+        return simuladas;
+    }
+
+    // los valores por defecto de config.balanceo.*
+    private static CargaInstancias nuevasCargas() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Expulsiones expulsiones = new Expulsiones(Integer.MAX_VALUE, "/actuator/health", Duration.ofSeconds(2),
+                Duration.ofMinutes(10), new DefaultListableBeanFactory().getBeanProvider(ReactiveDiscoveryClient.class),
+                registry);
+        return new CargaInstancias(0.3, Duration.ofSeconds(10), Duration.ofMillis(50), Duration.ofSeconds(1),
+                expulsiones, new TraductorErrores(registry));
+    }
+
+    private static ObjectProvider<ServiceInstanceListSupplier> proveedor(ServiceInstanceListSupplier supplier) {
+        DefaultListableBeanFactory fabrica = new DefaultListableBeanFactory();
+        fabrica.registerSingleton("supplier", supplier);
+        return fabrica.getBeanProvider(ServiceInstanceListSupplier.class);
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        return ordenadas[(int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1)] / 1e6;
+    }
+
+    private static void imprimir(String balanceador, Resultado r) {
+        System.out.printf("%-12s %10.1f %10.2f %10.2f %10.2f %12.1f%n", balanceador, r.opsPorSegundo(), r.p50(),
+                r.p99(), r.p999(), r.porcentajeLentas());
+    }
+
+    private static int argumento(String[] args, int posicion, int defecto) {
+        return args.length > posicion ? Integer.parseInt(args[posicion]) : defecto;
+    }
+
+    // instancia simulada: la latencia crece en proporcion a lo que supera su capacidad
+    private record Simulada(ServiceInstance instancia, boolean lenta, AtomicInteger enVuelo) {
+
+        Mono<Void> atender() {
+            return Mono.defer(() -> {
+                int cola = enVuelo.incrementAndGet();
+                double base = LATENCIA_BASE_MS * (lenta ? FACTOR_LENTAS : 1)
+                        * ThreadLocalRandom.current().nextDouble(0.8, 1.2);
+                long micros = (long) (base * 1000 * Math.max(1.0, (double) cola / CAPACIDAD));
+                return Mono.delay(Duration.ofNanos(micros * 1000))
+                        .doFinally(senal -> enVuelo.decrementAndGet())
+                        .then();
+            });
+        }
+    }
+
+    private record Resultado(double opsPorSegundo, double p50, double p99, double p999, double porcentajeLentas) {
+    }
+}
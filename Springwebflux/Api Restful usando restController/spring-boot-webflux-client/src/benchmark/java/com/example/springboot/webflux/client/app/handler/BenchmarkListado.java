@@ -0,0 +1,123 @@
+package com.example.springboot.webflux.client.app.handler;
+
+import com.example.springboot.webflux.client.app.cache.CopiaBytes;
+import com.example.springboot.webflux.client.app.models.Categoria;
+import com.example.springboot.webflux.client.app.models.Producto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+// coste de GET /api/client por listado servido: reenviar los bytes del backend tal cual
+// (config.listado.directo, con y sin config.listado.cache-respaldo) o decodificar a Producto
+// y volver a codificar. Todo corre en el hilo del main, asi el tiempo de cpu y los bytes
+// reservados del hilo son los de la operacion. Los trozos de entrada se copian en buffers del pool de netty en
+// cada vuelta, como los que llegan del backend; ese coste es igual en los tres modos.
+// Uso: gradle benchmarkListado -Pproductos=1000 -Piteraciones=2000 -PtamanoTrozo=8192
+public class BenchmarkListado {
+
+    private static final NettyDataBufferFactory buffers = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    private static final com.sun.management.ThreadMXBean hilo =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int productos = argumento(args, 0, 1000);
+        int iteraciones = argumento(args, 1, 2000);
+        int tamanoTrozo = argumento(args, 2, 8192);
+
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().modules(new BlackbirdModule()).build();
+        byte[] json = mapper.writeValueAsBytes(listado(productos));
+        Jackson2JsonDecoder decoder = new Jackson2JsonDecoder(mapper);
+        decoder.setMaxInMemorySize(-1);
+        Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(mapper);
+        ResolvableType tipo = ResolvableType.forClass(Producto.class);
+
+        Function<Flux<DataBuffer>, Flux<DataBuffer>> directo = Function.identity();
+        Function<Flux<DataBuffer>, Flux<DataBuffer>> conCopia = entrada ->
+                CopiaBytes.copiar(entrada, 8 * 1024 * 1024, bytes -> { });
+        Function<Flux<DataBuffer>, Flux<DataBuffer>> recodificado = entrada -> encoder.encode(
+                decoder.decode(entrada, tipo, MediaType.APPLICATION_JSON, Collections.emptyMap()).cast(Producto.class),
+                buffers, tipo, MediaType.APPLICATION_JSON, Collections.emptyMap());
+
+        System.out.println("JVM " + Runtime.version() + ", " + productos + " productos (" + json.length / 1024
+                + " KB de json) en trozos de " + tamanoTrozo + " bytes, " + iteraciones + " iteraciones");
+        System.out.printf("%-14s %14s %16s %12s%n", "modo", "cpu us/listado", "reservado KB", "MB/s");
+        medir("directo", directo, json, tamanoTrozo, iteraciones);
+        medir("directo+copia", conCopia, json, tamanoTrozo, iteraciones);
+        medir("recodificado", recodificado, json, tamanoTrozo, iteraciones);
+    }
+
+    private static void medir(String modo, Function<Flux<DataBuffer>, Flux<DataBuffer>> camino, byte[] json,
+                              int tamanoTrozo, int iteraciones) {
+        // calentamiento para que el jit compile el camino antes de medir
+        for (int i = 0; i < iteraciones / 2; i++) {
+            servir(camino, json, tamanoTrozo);
+        }
+        long id = Thread.currentThread().getId();
+        long cpuInicial = hilo.getCurrentThreadCpuTime();
+        long reservadosInicial = hilo.getThreadAllocatedBytes(id);
+        long bytes = 0;
+        for (int i = 0; i < iteraciones; i++) {
+            bytes += servir(camino, json, tamanoTrozo);
+        }
+        long cpu = hilo.getCurrentThreadCpuTime() - cpuInicial;
+        long reservados = hilo.getThreadAllocatedBytes(id) - reservadosInicial;
+        System.out.printf("%-14s %14.1f %16.1f %12.1f%n", modo, cpu / 1e3 / iteraciones,
+                reservados / 1024.0 / iteraciones, bytes / 1e6 / (cpu / 1e9));
+    }
+
+    // el "socket" de salida solo cuenta los bytes y libera cada buffer, como haria netty al escribirlo
+    private static long servir(Function<Flux<DataBuffer>, Flux<DataBuffer>> camino, byte[] json, int tamanoTrozo) {
+        long[] escritos = {0};
+        camino.apply(trozos(json, tamanoTrozo))
+                .doOnNext(buffer -> {
+                    escritos[0] += buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                })
+                .blockLast();
+        return escritos[0];
+    }
+
+    private static Flux<DataBuffer> trozos(byte[] json, int tamanoTrozo) {
+        return Flux.range(0, (json.length + tamanoTrozo - 1) / tamanoTrozo)
+                .map(i -> {
+                    int desde = i * tamanoTrozo;
+                    int tamano = Math.min(tamanoTrozo, json.length - desde);
+                    return buffers.allocateBuffer(tamano).write(json, desde, tamano);
+                });
+    }
+
+    private static List<Producto> listado(int productos) {
+        List<Producto> listado = new ArrayList<>();
+        for (int i = 0; i < productos; i++) {
+            Categoria categoria = new Categoria("Categoria " + i % 10);
+            categoria.setId(String.format("%024x", i % 10));
+            Producto producto = new Producto("Producto de prueba " + i, 10.0 + i, categoria);
+            producto.setId(String.format("%024x", 1000 + i));
+            producto.setCreateAt(new Date());
+            producto.setFoto(i + "-foto.jpg");
+            listado.add(producto);
+        }
+        return listado;
+    }
+
+    private static int argumento(String[] args, int posicion, int defecto) {
+        return args.length > posicion ? Integer.parseInt(args[posicion]) : defecto;
+    }
+}
@@ -1,19 +1,97 @@
 package com.example.springboot.webflux.client.app;
 
+import com.example.springboot.webflux.client.app.balanceo.BalanceoConfig;
+import com.example.springboot.webflux.client.app.balanceo.CargaInstancias;
+import com.example.springboot.webflux.client.app.filter.IdentidadClienteFilter;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.regex.Pattern;
 
 @Configuration
+@LoadBalancerClients(defaultConfiguration = BalanceoConfig.class)
+@EnableScheduling
 public class AppConfig {
 
+    private static final Pattern ID_MONGO = Pattern.compile("/[0-9a-fA-F]{24}");
+
+    private static final Pattern FOTO = Pattern.compile("/uploads/img/[^/?]+");
+
     @Value("${config.base.endpoint}")
     private String endpoint;
+
+    @Value("${config.backend.http2:false}")
+    private boolean http2;
+
+    @Value("${config.backend.pool.max-connections:500}")
+    private int maxConexiones;
+
+    @Value("${config.backend.pool.max-idle-time:30s}")
+    private Duration maxInactividad;
+
+    @Value("${config.backend.pool.pending-acquire-timeout:45s}")
+    private Duration esperaConexion;
+
+    @Value("${config.backend.connect-timeout:30s}")
+    private Duration timeoutConexion;
+
+    // tiempo maximo sin recibir nada del backend mientras se espera o se lee una respuesta
+    @Value("${config.backend.response-timeout:PT10S}")
+    private Duration timeoutRespuesta;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider backendConnectionProvider(){
+        return ConnectionProvider.builder("backend")
+                .maxConnections(maxConexiones)
+                .maxIdleTime(maxInactividad)
+                .pendingAcquireTimeout(esperaConexion)
+                .metrics(true)
+                .build();
+    }
+
     @Bean
     @LoadBalanced
-    public WebClient.Builder registrarWebClient(){
-        return WebClient.builder().baseUrl(endpoint);
+    public WebClient.Builder registrarWebClient(ObjectProvider<CodecCustomizer> codecCustomizers,
+                                                ConnectionProvider backendConnectionProvider,
+                                                CargaInstancias cargas,
+                                                IdentidadClienteFilter identidad){
+        // con http2 se pide h2c por upgrade desde http/1.1, no con conocimiento previo: una
+        // instancia con server.http2.enabled (perfil prod del backend) pasa a h2 y multiplexa
+        // los streams; una sin el sigue respondiendo en http/1.1 en lugar de cortar la conexion
+        HttpProtocol[] protocolos = http2 ? new HttpProtocol[]{HttpProtocol.HTTP11, HttpProtocol.H2C}
+                : new HttpProtocol[]{HttpProtocol.HTTP11};
+        HttpClient httpClient = HttpClient.create(backendConnectionProvider)
+                .protocol(protocolos)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeoutConexion.toMillis())
+                .responseTimeout(timeoutRespuesta)
+                .metrics(true, AppConfig::uriMetrica);
+
+        // el builder se crea a mano, asi que aplicamos los mismos codecs (jackson, max-in-memory-size)
+        // que spring boot configura para el servidor
+        return WebClient.builder().baseUrl(endpoint)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                // va antes que el filtro de @LoadBalanced (se agrega despues), asi ve el final de cada intento
+                .filter(cargas.filtro())
+                .filter(identidad.filtro())
+                .codecs(configurer -> codecCustomizers.orderedStream()
+                        .forEach(customizer -> customizer.customize(configurer)));
+    }
+
+    // ids de mongo y nombres de foto agrupados: una serie de metricas por ruta, no por producto
+    private static String uriMetrica(String uri){
+        return ID_MONGO.matcher(FOTO.matcher(uri).replaceAll("/uploads/img/{foto}")).replaceAll("/{id}");
     }
 }
@@ -0,0 +1,38 @@
+package com.example.springboot.webflux.client.app;
+
+import com.example.springboot.webflux.client.app.cache.CacheRespaldo;
+import com.example.springboot.webflux.client.app.errores.TraductorErrores;
+import com.example.springboot.webflux.client.app.models.Producto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    @Value("${config.cache.productos.maximo:10000}")
+    private long maxProductos;
+
+    @Value("${config.cache.fresco:PT5S}")
+    private Duration fresco;
+
+    @Value("${config.cache.revalidacion:PT1M}")
+    private Duration revalidacion;
+
+    @Value("${config.cache.edad-maxima:PT30M}")
+    private Duration edadMaxima;
+
+    @Bean
+    public CacheRespaldo<Producto> cacheProductos(TraductorErrores traductor, MeterRegistry registry){
+        return new CacheRespaldo<>("productos", maxProductos, fresco, revalidacion, edadMaxima, traductor, registry);
+    }
+
+    // el listado completo ya serializado: una sola entrada
+    @Bean
+    public CacheRespaldo<byte[]> cacheListado(TraductorErrores traductor, MeterRegistry registry){
+        return new CacheRespaldo<>("listado", 1, fresco, revalidacion, edadMaxima, traductor, registry);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.springboot.webflux.client.app;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@Configuration
+public class JacksonConfig {
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    public static final MediaType APPLICATION_STREAM_SMILE = new MediaType("application", "stream+x-jackson-smile");
+
+    // Spring Boot registra cualquier Module en el ObjectMapper de los codecs,
+    // blackbird genera los accesores con LambdaMetafactory en vez de reflexion
+    @Bean
+    public Module blackbirdModule(){
+        return new BlackbirdModule();
+    }
+
+    // smile (json binario) para las llamadas internas gateway -> backend, con la misma
+    // configuracion de jackson que el codec json (modulos, fechas, inclusion)
+    @Bean
+    public CodecCustomizer smileCodecCustomizer(Jackson2ObjectMapperBuilder builder){
+        ObjectMapper smileMapper = builder.factory(new SmileFactory()).build();
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper));
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper));
+        };
+    }
+}
@@ -16,6 +16,7 @@ public class RouterConfig {
 
         return RouterFunctions.route(RequestPredicates.GET("/api/client"), handler::listar)
                 .andRoute(RequestPredicates.GET("/api/client/{id}"), handler::ver)
+                .andRoute(RequestPredicates.GET("/api/client/{id}/detalle"), handler::detalle)
                 .andRoute(RequestPredicates.POST("/api/client"), handler::crear)
                 .andRoute(RequestPredicates.PUT("/api/client/{id}"), handler::editar)
                 .andRoute(RequestPredicates.DELETE("/api/client/{id}"), handler::eliminar)
@@ -0,0 +1,41 @@
+package com.example.springboot.webflux.client.app.balanceo;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+// configuracion de cada cliente del balanceador (contexto hijo por servicio). No lleva
+// @Configuration a proposito: se registra con @LoadBalancerClients y no debe entrar en el
+// escaneo de componentes del contexto principal
+public class BalanceoConfig {
+
+    @Bean
+    public ServiceInstanceListSupplier serviceInstanceListSupplier(ConfigurableApplicationContext context) {
+        return ServiceInstanceListSupplier.builder()
+                .withDiscoveryClient()
+                .withCaching()
+                .with((contexto, delegate) -> new ExpulsionSupplier(delegate, contexto.getBean(Expulsiones.class)))
+                .with((contexto, delegate) -> new ExcluirInstanciaSupplier(delegate))
+                .build(context);
+    }
+
+    // sustituye al round robin por defecto
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(
+            ObjectProvider<ServiceInstanceListSupplier> suppliers, CargaInstancias cargas) {
+        return new MenorCargaLoadBalancer(suppliers, cargas);
+    }
+
+    @Bean
+    public CargaLifecycle cargaLifecycle() {
+        return new CargaLifecycle();
+    }
+
+    @Bean
+    public InstanciaElegidaLifecycle instanciaElegidaLifecycle() {
+        return new InstanciaElegidaLifecycle();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.springboot.webflux.client.app.balanceo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// carga de una instancia del backend: peticiones en vuelo y media movil exponencial (EWMA)
+// de la latencia. Todo se actualiza con CAS, sin locks. Si una instancia deja de recibir
+// trafico su media vuelve poco a poco al valor inicial, asi una instancia lenta que se ha
+// recuperado vuelve a ser elegida en lugar de quedarse sin muestras para siempre
+public class CargaInstancia {
+
+    private final double alfa;
+
+    private final double decaimientoNanos;
+
+    private final long latenciaInicial;
+
+    private final AtomicInteger enVuelo = new AtomicInteger();
+
+    private final AtomicReference<Media> media;
+
+    public CargaInstancia(double alfa, long decaimientoNanos, long latenciaInicial) {
+        this.alfa = alfa;
+        this.decaimientoNanos = decaimientoNanos;
+        this.latenciaInicial = latenciaInicial;
+        this.media = new AtomicReference<>(new Media(latenciaInicial, System.nanoTime()));
+    }
+
+    public void iniciar() {
+        enVuelo.incrementAndGet();
+    }
+
+    public void terminar(long nanos) {
+        enVuelo.decrementAndGet();
+        long ahora = System.nanoTime();
+        media.updateAndGet(actual -> {
+            double previa = latencia(actual, ahora);
+            return new Media(previa + alfa * (nanos - previa), ahora);
+        });
+    }
+
+    public int getEnVuelo() {
+        return enVuelo.get();
+    }
+
+    public double getLatencia() {
+        return latencia(media.get(), System.nanoTime());
+    }
+
+    // latencia esperada por la cola que encontraria una peticion nueva
+    public double costo() {
+        return getLatencia() * (enVuelo.get() + 1);
+    }
+
+    private double latencia(Media actual, long ahora) {
+        double peso = Math.exp(-(ahora - actual.actualizada()) / decaimientoNanos);
+        return latenciaInicial + (actual.ewma() - latenciaInicial) * peso;
+    }
+
+    private record Media(double ewma, long actualizada) {
+    }
+}
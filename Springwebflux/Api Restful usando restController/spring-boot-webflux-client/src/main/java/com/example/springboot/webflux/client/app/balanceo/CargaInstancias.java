@@ -0,0 +1,138 @@
+package com.example.springboot.webflux.client.app.balanceo;
+
+import com.example.springboot.webflux.client.app.errores.TraductorErrores;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// carga de cada instancia del backend, compartida por el balanceador (que la lee) y por el
+// filtro del WebClient junto con CargaLifecycle (que la actualizan).
+// El lifecycle del balanceador no recibe las cancelaciones (p.ej. la rama perdedora de un
+// hedge), por eso el final de cada peticion lo marca un filtro del WebClient
+@Component
+public class CargaInstancias {
+
+    public static final String ATRIBUTO_PETICION = CargaInstancias.class.getName() + ".peticion";
+
+    // instante (System.nanoTime) en que vence el timeout de quien hace la llamada
+    private static final String PLAZO = CargaInstancias.class.getName() + ".plazo";
+
+    private final Map<String, CargaInstancia> cargas = new ConcurrentHashMap<>();
+
+    private final double alfa;
+
+    private final long decaimiento;
+
+    private final long latenciaInicial;
+
+    private final long penalizacion;
+
+    private final Expulsiones expulsiones;
+
+    private final TraductorErrores traductor;
+
+    public CargaInstancias(@Value("${config.balanceo.alfa:0.3}") double alfa,
+                           @Value("${config.balanceo.decaimiento:PT10S}") Duration decaimiento,
+                           @Value("${config.balanceo.latencia-inicial:PT50MS}") Duration latenciaInicial,
+                           @Value("${config.balanceo.penalizacion:PT1S}") Duration penalizacion,
+                           Expulsiones expulsiones,
+                           TraductorErrores traductor) {
+        this.alfa = alfa;
+        this.decaimiento = decaimiento.toNanos();
+        this.latenciaInicial = latenciaInicial.toNanos();
+        this.penalizacion = penalizacion.toNanos();
+        this.expulsiones = expulsiones;
+        this.traductor = traductor;
+    }
+
+    public CargaInstancia de(ServiceInstance instancia) {
+        return cargas.computeIfAbsent(Hedging.clave(instancia),
+                clave -> new CargaInstancia(alfa, decaimiento, latenciaInicial));
+    }
+
+    // el operador timeout cancela la llamada antes de emitir el error, asi que el filtro solo ve
+    // una cancelacion. Con este metodo el plazo viaja en el contexto y el filtro puede distinguir
+    // la cancelacion por timeout (fallo de la instancia) de la de un hedge o un cliente.
+    // Con plazos anidados (el de la llamada dentro del de un tramo del detalle) vale el que antes vence
+    public static <T> Mono<T> conPlazo(Mono<T> llamada, Duration plazo) {
+        return llamada.timeout(plazo)
+                .contextWrite(contexto -> {
+                    long vence = System.nanoTime() + plazo.toNanos();
+                    Long anterior = contexto.getOrDefault(PLAZO, null);
+                    return contexto.put(PLAZO, anterior != null && anterior - vence < 0 ? anterior : vence);
+                });
+    }
+
+    // se registra en el builder antes que el filtro del balanceador, asi lo envuelve
+    public ExchangeFilterFunction filtro() {
+        return (request, next) -> Mono.deferContextual(contexto -> {
+            Peticion peticion = new Peticion();
+            Long plazo = contexto.getOrDefault(PLAZO, null);
+            return next.exchange(ClientRequest.from(request).attribute(ATRIBUTO_PETICION, peticion).build())
+                    .doOnSuccess(response -> peticion.terminar(response == null || fallo(response)))
+                    // solo cuentan los errores de la instancia (conexion, timeout...), no los del
+                    // lado del cliente como una subida demasiado grande
+                    .doOnError(e -> peticion.terminar(traductor.tipo(e).isFallaBackend()))
+                    // cancelada al vencer el plazo cuenta como fallo; cualquier otra cancelacion
+                    // (rama perdedora de un hedge, cliente que se va) no es culpa de la instancia
+                    .doOnCancel(() -> {
+                        if (plazo != null && System.nanoTime() - plazo >= 0) {
+                            peticion.terminar(true);
+                        } else {
+                            peticion.cancelar();
+                        }
+                    });
+        });
+    }
+
+    // un 503 con Retry-After es descarte de carga deliberado, no una instancia averiada
+    private static boolean fallo(ClientResponse response) {
+        return response.statusCode().is5xxServerError()
+                && !(response.statusCode().value() == 503
+                && response.headers().asHttpHeaders().containsKey(HttpHeaders.RETRY_AFTER));
+    }
+
+    // intento en curso de una peticion; CargaLifecycle lo asocia a la instancia elegida
+    public class Peticion {
+
+        private final AtomicReference<Intento> intento = new AtomicReference<>();
+
+        void iniciar(ServiceInstance instancia) {
+            CargaInstancia carga = de(instancia);
+            carga.iniciar();
+            // si el balanceador reintenta con otra instancia el intento anterior cuenta como fallo
+            cerrar(intento.getAndSet(new Intento(instancia, carga, System.nanoTime())), true, true);
+        }
+
+        void terminar(boolean fallo) {
+            cerrar(intento.getAndSet(null), fallo, true);
+        }
+
+        void cancelar() {
+            cerrar(intento.getAndSet(null), false, false);
+        }
+
+        private void cerrar(Intento anterior, boolean fallo, boolean concluyente) {
+            if (anterior != null) {
+                long nanos = System.nanoTime() - anterior.inicio();
+                anterior.carga().terminar(fallo ? Math.max(nanos, penalizacion) : nanos);
+                if (concluyente) {
+                    expulsiones.resultado(anterior.instancia(), fallo);
+                }
+            }
+        }
+    }
+
+    private record Intento(ServiceInstance instancia, CargaInstancia carga, long inicio) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.springboot.webflux.client.app.balanceo;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+// si la peticion indica una instancia a evitar (el hedge no debe ir a la misma instancia que
+// la peticion original) se quita de la lista, salvo que sea la unica disponible
+public class ExcluirInstanciaSupplier extends DelegatingServiceInstanceListSupplier {
+
+    public ExcluirInstanciaSupplier(ServiceInstanceListSupplier delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return getDelegate().get();
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get(Request request) {
+        Object excluir = request.getContext() instanceof RequestDataContext contexto
+                ? contexto.getClientRequest().getAttributes().get(Hedging.ATRIBUTO_EXCLUIR)
+                : null;
+        if (excluir == null) {
+            return getDelegate().get(request);
+        }
+        return getDelegate().get(request).map(instancias -> {
+            List<ServiceInstance> resto = instancias.stream()
+                    .filter(instancia -> !excluir.equals(Hedging.clave(instancia)))
+                    .toList();
+            return resto.isEmpty() ? instancias : resto;
+        });
+    }
+}
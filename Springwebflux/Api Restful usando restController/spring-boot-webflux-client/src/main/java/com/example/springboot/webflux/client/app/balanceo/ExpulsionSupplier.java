@@ -0,0 +1,38 @@
+package com.example.springboot.webflux.client.app.balanceo;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+// quita de la lista cacheada las instancias expulsadas. Si estuvieran todas fuera se
+// devuelve la lista completa: mejor intentarlo que fallar sin llamar a nadie
+public class ExpulsionSupplier extends DelegatingServiceInstanceListSupplier {
+
+    private final Expulsiones expulsiones;
+
+    public ExpulsionSupplier(ServiceInstanceListSupplier delegate, Expulsiones expulsiones) {
+        super(delegate);
+        this.expulsiones = expulsiones;
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return getDelegate().get().map(this::filtrar);
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get(Request request) {
+        return getDelegate().get(request).map(this::filtrar);
+    }
+
+    private List<ServiceInstance> filtrar(List<ServiceInstance> instancias) {
+        List<ServiceInstance> dentro = instancias.stream()
+                .filter(instancia -> !expulsiones.isExpulsada(instancia))
+                .toList();
+        return dentro.isEmpty() ? instancias : dentro;
+    }
+}
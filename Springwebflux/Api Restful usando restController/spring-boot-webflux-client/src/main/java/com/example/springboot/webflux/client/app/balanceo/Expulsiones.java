@@ -0,0 +1,169 @@
+package com.example.springboot.webflux.client.app.balanceo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// expulsion local de instancias con fallos seguidos: errores de conexion, 5xx y timeouts, tanto
+// los de netty como los del operador timeout cuando la llamada se hace con CargaInstancias.conPlazo.
+// Una instancia expulsada deja de recibir trafico sin esperar al siguiente refresco de
+// eureka, y vuelve a entrar cuando responde a un sondeo de salud
+@Component
+public class Expulsiones {
+
+    private static final Logger log = LoggerFactory.getLogger(Expulsiones.class);
+
+    private final Map<String, Estado> estados = new ConcurrentHashMap<>();
+
+    // cliente sin @LoadBalanced: el sondeo va a una instancia concreta
+    private final WebClient client = WebClient.create();
+
+    private final int umbral;
+
+    private final String rutaSondeo;
+
+    private final Duration timeoutSondeo;
+
+    private final Duration olvido;
+
+    private final Counter expulsadas;
+
+    private final Counter readmitidas;
+
+    // sin cliente de descubrimiento no se puede saber si una instancia sigue registrada: no se olvida
+    private final ReactiveDiscoveryClient descubrimiento;
+
+    public Expulsiones(@Value("${config.balanceo.expulsion.fallos:5}") int umbral,
+                       @Value("${config.balanceo.expulsion.ruta-sondeo:/actuator/health}") String rutaSondeo,
+                       @Value("${config.balanceo.expulsion.timeout-sondeo:PT2S}") Duration timeoutSondeo,
+                       @Value("${config.balanceo.expulsion.olvido:PT10M}") Duration olvido,
+                       ObjectProvider<ReactiveDiscoveryClient> descubrimiento,
+                       MeterRegistry registry) {
+        this.descubrimiento = descubrimiento.getIfAvailable();
+        this.umbral = umbral;
+        this.rutaSondeo = rutaSondeo;
+        this.timeoutSondeo = timeoutSondeo;
+        this.olvido = olvido;
+        this.expulsadas = Counter.builder("backend.instancias.expulsadas").register(registry);
+        this.readmitidas = Counter.builder("backend.instancias.readmitidas").register(registry);
+        Gauge.builder("backend.instancias.fuera", estados,
+                        mapa -> mapa.values().stream().filter(Estado::isExpulsada).count())
+                .register(registry);
+    }
+
+    public boolean isExpulsada(ServiceInstance instancia) {
+        Estado estado = estados.get(Hedging.clave(instancia));
+        return estado != null && estado.isExpulsada();
+    }
+
+    public void resultado(ServiceInstance instancia, boolean fallo) {
+        Estado estado = estados.computeIfAbsent(Hedging.clave(instancia), clave -> new Estado(instancia));
+        if (!fallo) {
+            estado.fallos.set(0);
+            readmitir(estado);
+        } else if (estado.fallos.incrementAndGet() >= umbral && estado.expulsadaDesde == 0) {
+            synchronized (estado) {
+                if (estado.expulsadaDesde == 0) {
+                    estado.expulsadaDesde = System.nanoTime();
+                    expulsadas.increment();
+                    log.warn("Instancia " + Hedging.clave(instancia) + " expulsada tras " + umbral + " fallos seguidos");
+                }
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${config.balanceo.expulsion.sondeo:PT5S}",
+            fixedDelayString = "${config.balanceo.expulsion.sondeo:PT5S}")
+    public Mono<Void> sondear() {
+        return Flux.fromIterable(estados.values())
+                .filter(Estado::isExpulsada)
+                .flatMap(this::sondear)
+                .then();
+    }
+
+    // pasado el tiempo de olvido se pregunta a eureka: si ya no la lista no llegaran peticiones
+    // y se olvida; si sigue registrada se sigue sondeando, solo vuelve al responder el sondeo
+    private Mono<Void> sondear(Estado estado) {
+        if (System.nanoTime() - estado.expulsadaDesde > olvido.toNanos()) {
+            return registrada(estado.instancia).flatMap(sigue -> {
+                if (!sigue) {
+                    estados.remove(Hedging.clave(estado.instancia), estado);
+                    return Mono.empty();
+                }
+                return probar(estado);
+            });
+        }
+        return probar(estado);
+    }
+
+    private Mono<Boolean> registrada(ServiceInstance instancia) {
+        if (descubrimiento == null) {
+            return Mono.just(true);
+        }
+        String clave = Hedging.clave(instancia);
+        return descubrimiento.getInstances(instancia.getServiceId())
+                .any(listada -> Hedging.clave(listada).equals(clave))
+                // si eureka no contesta no se puede asegurar que se haya ido
+                .onErrorReturn(true);
+    }
+
+    private Mono<Void> probar(Estado estado) {
+        return client.get()
+                .uri(estado.instancia.getUri() + rutaSondeo)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeoutSondeo)
+                .doOnNext(respuesta -> {
+                    estado.fallos.set(0);
+                    readmitir(estado);
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private void readmitir(Estado estado) {
+        if (estado.expulsadaDesde != 0) {
+            synchronized (estado) {
+                if (estado.expulsadaDesde != 0) {
+                    estado.expulsadaDesde = 0;
+                    readmitidas.increment();
+                    log.info("Instancia " + Hedging.clave(estado.instancia) + " readmitida");
+                }
+            }
+        }
+    }
+
+    private static class Estado {
+
+        private final ServiceInstance instancia;
+
+        private final AtomicInteger fallos = new AtomicInteger();
+
+        // 0 mientras la instancia esta dentro
+        private volatile long expulsadaDesde;
+
+        Estado(ServiceInstance instancia) {
+            this.instancia = instancia;
+        }
+
+        boolean isExpulsada() {
+            return expulsadaDesde != 0;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.springboot.webflux.client.app.balanceo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// hedging para GETs idempotentes: si la instancia elegida no ha respondido cuando pasa el p95
+// reciente, se lanza la misma peticion contra otra instancia y gana la primera que responda
+// (la otra se cancela). Un presupuesto limita cuantas peticiones extra se generan
+@Component
+public class Hedging {
+
+    // atributos de la peticion que leen el balanceador y su lifecycle
+    public static final String ATRIBUTO_ELEGIDA = Hedging.class.getName() + ".elegida";
+
+    public static final String ATRIBUTO_EXCLUIR = Hedging.class.getName() + ".excluir";
+
+    private final boolean habilitado;
+
+    private final Duration retrasoMinimo;
+
+    private final Duration retrasoMaximo;
+
+    private final VentanaLatencias latencias;
+
+    private final PresupuestoHedge presupuesto;
+
+    private final Counter lanzados;
+
+    private final Counter ganados;
+
+    private final Counter sinPresupuesto;
+
+    public Hedging(@Value("${config.hedging.habilitado:true}") boolean habilitado,
+                   @Value("${config.hedging.retraso-minimo:PT20MS}") Duration retrasoMinimo,
+                   @Value("${config.hedging.retraso-maximo:PT1S}") Duration retrasoMaximo,
+                   @Value("${config.hedging.ventana:1024}") int ventana,
+                   @Value("${config.hedging.presupuesto:0.05}") double fraccion,
+                   @Value("${config.hedging.rafaga:10}") int rafaga,
+                   MeterRegistry registry) {
+        this.habilitado = habilitado;
+        this.retrasoMinimo = retrasoMinimo;
+        this.retrasoMaximo = retrasoMaximo;
+        this.latencias = new VentanaLatencias(ventana, Duration.ofSeconds(1).toNanos(), retrasoMaximo.toNanos());
+        this.presupuesto = new PresupuestoHedge(fraccion, rafaga);
+        this.lanzados = Counter.builder("backend.hedging.lanzados").register(registry);
+        this.ganados = Counter.builder("backend.hedging.ganados").register(registry);
+        this.sinPresupuesto = Counter.builder("backend.hedging.sin.presupuesto").register(registry);
+    }
+
+    public static String clave(ServiceInstance instancia) {
+        return instancia.getHost() + ":" + instancia.getPort();
+    }
+
+    // la peticion recibe un consumidor de atributos que debe pasar a WebClient con .attributes(...)
+    public <T> Mono<T> mono(Function<Consumer<Map<String, Object>>, Mono<T>> peticion) {
+        return flux(atributos -> peticion.apply(atributos).flux()).next();
+    }
+
+    public <T> Flux<T> flux(Function<Consumer<Map<String, Object>>, Flux<T>> peticion) {
+        if (!habilitado) {
+            return peticion.apply(atributos -> { });
+        }
+        return Flux.defer(() -> {
+            presupuesto.aportar();
+            AtomicReference<String> elegida = new AtomicReference<>();
+            AtomicBoolean hedgeLanzado = new AtomicBoolean();
+            AtomicInteger fallos = new AtomicInteger();
+            long inicio = System.nanoTime();
+            AtomicBoolean medido = new AtomicBoolean();
+            Runnable medir = () -> {
+                if (medido.compareAndSet(false, true)) {
+                    latencias.registrar(System.nanoTime() - inicio);
+                }
+            };
+
+            // el error de una rama solo se propaga si la otra ya no puede responder
+            Flux<T> primaria = peticion.apply(atributos -> atributos.put(ATRIBUTO_ELEGIDA, elegida))
+                    .doOnEach(senal -> medir.run())
+                    // si pierde se mide hasta la cancelacion: asi la cola lenta sigue en la ventana
+                    .doOnCancel(medir)
+                    .onErrorResume(e -> hedgeLanzado.get() && fallos.incrementAndGet() < 2
+                            ? Flux.never() : Flux.error(e));
+
+            // sin hedge (primaria a tiempo o sin presupuesto) decide la primaria; un hedge lanzado
+            // que termina vacio si cuenta como respuesta
+            Flux<T> hedge = Mono.delay(retraso())
+                    .flatMapMany(tick -> {
+                        if (!presupuesto.intentarGastar()) {
+                            sinPresupuesto.increment();
+                            return Flux.<T>never();
+                        }
+                        hedgeLanzado.set(true);
+                        lanzados.increment();
+                        return peticion.apply(atributos -> {
+                                    if (elegida.get() != null) {
+                                        atributos.put(ATRIBUTO_EXCLUIR, elegida.get());
+                                    }
+                                })
+                                .doOnEach(senal -> {
+                                    if (!senal.isOnError() && !medido.get()) {
+                                        ganados.increment();
+                                    }
+                                })
+                                .onErrorResume(e -> fallos.incrementAndGet() < 2 ? Flux.never() : Flux.error(e));
+                    });
+
+            return Flux.firstWithSignal(primaria, hedge);
+        });
+    }
+
+    private Duration retraso() {
+        long p95 = latencias.percentil95();
+        return Duration.ofNanos(Math.max(retrasoMinimo.toNanos(), Math.min(retrasoMaximo.toNanos(), p95)));
+    }
+}
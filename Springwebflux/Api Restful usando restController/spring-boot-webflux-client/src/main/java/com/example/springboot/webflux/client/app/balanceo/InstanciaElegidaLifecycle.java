@@ -0,0 +1,39 @@
+package com.example.springboot.webflux.client.app.balanceo;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// anota en la peticion que instancia eligio el balanceador, para que el hedge pueda evitarla
+public class InstanciaElegidaLifecycle implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return RequestDataContext.class.isAssignableFrom(requestContextClass)
+                && ResponseData.class.isAssignableFrom(responseClass)
+                && ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        Object destino = request.getContext().getClientRequest().getAttributes().get(Hedging.ATRIBUTO_ELEGIDA);
+        if (destino instanceof AtomicReference<?> elegida && lbResponse.hasServer()) {
+            ((AtomicReference<String>) elegida).set(Hedging.clave(lbResponse.getServer()));
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.springboot.webflux.client.app.balanceo;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// "power of two choices": se toman dos instancias al azar y gana la de menor costo
+// (latencia media x peticiones en vuelo). Casi tan bueno como mirar todas, sin que todas
+// las peticiones se vayan en manada a la misma instancia entre actualizaciones
+public class MenorCargaLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+
+    private final CargaInstancias cargas;
+
+    public MenorCargaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider, CargaInstancias cargas) {
+        this.supplierProvider = supplierProvider;
+        this.cargas = cargas;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::elegir);
+    }
+
+    private Response<ServiceInstance> elegir(List<ServiceInstance> instancias) {
+        if (instancias.isEmpty()) {
+            return new EmptyResponse();
+        }
+        if (instancias.size() == 1) {
+            return new DefaultResponse(instancias.get(0));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(instancias.size());
+        int b = random.nextInt(instancias.size() - 1);
+        if (b >= a) {
+            b++;
+        }
+        ServiceInstance primera = instancias.get(a);
+        ServiceInstance segunda = instancias.get(b);
+        return new DefaultResponse(cargas.de(primera).costo() <= cargas.de(segunda).costo() ? primera : segunda);
+    }
+}
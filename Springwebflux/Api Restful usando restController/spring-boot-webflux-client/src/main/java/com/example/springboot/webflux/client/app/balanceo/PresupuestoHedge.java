@@ -0,0 +1,37 @@
+package com.example.springboot.webflux.client.app.balanceo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// cada peticion aporta una fraccion de hedge y cada hedge gasta uno entero: con fraccion
+// 0.05 como mucho un 5% de peticiones extra al backend, con una rafaga maxima acotada
+public class PresupuestoHedge {
+
+    private static final long UNIDAD = 1000;
+
+    private final long aporte;
+
+    private final long maximo;
+
+    private final AtomicLong saldo;
+
+    public PresupuestoHedge(double fraccion, int rafaga) {
+        this.aporte = Math.round(fraccion * UNIDAD);
+        this.maximo = rafaga * UNIDAD;
+        this.saldo = new AtomicLong(maximo);
+    }
+
+    public void aportar() {
+        saldo.accumulateAndGet(aporte, (actual, suma) -> Math.min(maximo, actual + suma));
+    }
+
+    public boolean intentarGastar() {
+        long actual;
+        do {
+            actual = saldo.get();
+            if (actual < UNIDAD) {
+                return false;
+            }
+        } while (!saldo.compareAndSet(actual, actual - UNIDAD));
+        return true;
+    }
+}
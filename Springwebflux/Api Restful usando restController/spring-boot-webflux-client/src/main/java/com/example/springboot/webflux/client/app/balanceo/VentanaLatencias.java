@@ -0,0 +1,49 @@
+package com.example.springboot.webflux.client.app.balanceo;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// ultimas N latencias en un buffer circular sin locks. El p95 se recalcula como mucho una
+// vez por intervalo; entre medias se devuelve el ultimo calculado
+public class VentanaLatencias {
+
+    private final AtomicLongArray muestras;
+
+    private final AtomicLong escritas = new AtomicLong();
+
+    private final long intervaloNanos;
+
+    private final AtomicLong proximoCalculo = new AtomicLong();
+
+    private volatile long p95;
+
+    public VentanaLatencias(int tamano, long intervaloNanos, long p95Inicial) {
+        this.muestras = new AtomicLongArray(tamano);
+        this.intervaloNanos = intervaloNanos;
+        this.p95 = p95Inicial;
+    }
+
+    public void registrar(long nanos) {
+        long indice = escritas.getAndIncrement();
+        muestras.set((int) (indice % muestras.length()), nanos);
+    }
+
+    // hasta tener una ventana minima se mantiene el valor inicial
+    public long percentil95() {
+        long ahora = System.nanoTime();
+        long proximo = proximoCalculo.get();
+        if (ahora - proximo >= 0 && proximoCalculo.compareAndSet(proximo, ahora + intervaloNanos)) {
+            int cuantas = (int) Math.min(escritas.get(), muestras.length());
+            if (cuantas >= Math.min(100, muestras.length())) {
+                long[] copia = new long[cuantas];
+                for (int i = 0; i < cuantas; i++) {
+                    copia[i] = muestras.get(i);
+                }
+                Arrays.sort(copia);
+                p95 = copia[(int) Math.ceil(cuantas * 0.95) - 1];
+            }
+        }
+        return p95;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.springboot.webflux.client.app.cache;
+
+import com.example.springboot.webflux.client.app.errores.TipoError;
+import com.example.springboot.webflux.client.app.errores.TraductorErrores;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// ultima respuesta buena por clave, acotada en numero de entradas y en edad.
+// - fresca (edad <= fresco): se sirve sin llamar al backend
+// - caducada dentro de la ventana de revalidacion: se sirve al momento y una sola
+//   revalidacion por clave la refresca en segundo plano
+// - mas antigua o invalidada por una escritura: se pide al backend, y si este falla (timeout,
+//   conexion, 5xx, circuito abierto) se responde con la copia antigua mientras no supere la
+//   edad maxima
+public class CacheRespaldo<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheRespaldo.class);
+
+    private final String nombre;
+
+    private final Cache<String, Entrada<T>> entradas;
+
+    private final Set<String> revalidando = ConcurrentHashMap.newKeySet();
+
+    private final TraductorErrores traductor;
+
+    private final long fresco;
+
+    private final long revalidacion;
+
+    // caffeine ya expira por edad, pero marcar una entrada como invalidada cuenta como
+    // escritura y le reinicia el plazo; por eso la edad maxima tambien se comprueba aqui
+    private final long edadMaxima;
+
+    private final Map<EstadoCache, Counter> respuestas = new EnumMap<>(EstadoCache.class);
+
+    public CacheRespaldo(String nombre, long maximo, Duration fresco, Duration revalidacion, Duration edadMaxima,
+                         TraductorErrores traductor, MeterRegistry registry) {
+        this.nombre = nombre;
+        this.traductor = traductor;
+        this.fresco = fresco.toNanos();
+        this.revalidacion = revalidacion.toNanos();
+        this.edadMaxima = edadMaxima.toNanos();
+        this.entradas = Caffeine.newBuilder()
+                .maximumSize(maximo)
+                .expireAfterWrite(edadMaxima)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, entradas, nombre);
+        for (EstadoCache estado : EstadoCache.values()) {
+            respuestas.put(estado, Counter.builder("gateway.cache.respuestas")
+                    .tag("cache", nombre)
+                    .tag("estado", estado.cabecera())
+                    .register(registry));
+        }
+    }
+
+    public Mono<RespuestaCache<T>> consultar(String clave, Supplier<Mono<T>> origen) {
+        return Mono.defer(() -> {
+            Entrada<T> entrada = entrada(clave);
+            if (entrada != null && !entrada.invalidada()) {
+                long edad = entrada.edad();
+                if (edad <= fresco) {
+                    return Mono.just(responder(entrada, EstadoCache.HIT));
+                }
+                if (edad <= fresco + revalidacion) {
+                    revalidar(clave, origen);
+                    return Mono.just(responder(entrada, EstadoCache.STALE));
+                }
+            }
+            Mono<RespuestaCache<T>> consulta = pedir(clave, origen)
+                    .map(valor -> responder(new Entrada<>(valor, System.nanoTime(), false), EstadoCache.MISS));
+            return entrada == null ? consulta : consulta.onErrorResume(e -> respaldo(clave, entrada, e));
+        });
+    }
+
+    // la copia anterior si el error lo permite, y si no el mismo error. Sirve tambien para las
+    // respuestas en streaming que no pasan por consultar. Un backend lento llega aqui como
+    // TIMEOUT por el plazo de cada llamada (config.backend.plazo), que tambien admite la copia.
+    // Solo se clasifica: el error ya se conto al traducirlo en el servicio o se contara al responderlo
+    public Mono<RespuestaCache<T>> respaldo(String clave, Entrada<T> anterior, Throwable error) {
+        if (anterior == null || anterior.edad() > edadMaxima || !traductor.tipo(error).isAdmiteCache()) {
+            return Mono.error(error);
+        }
+        log.warn("Backend con error, se sirve " + nombre + "/" + clave + " desde cache: " + error.getMessage());
+        return Mono.just(responder(anterior, EstadoCache.STALE_IF_ERROR));
+    }
+
+    // la entrada ya existente que no ha caducado del todo, si la hay (puede estar invalidada)
+    public Entrada<T> entrada(String clave) {
+        Entrada<T> entrada = entradas.getIfPresent(clave);
+        return entrada != null && entrada.edad() <= edadMaxima ? entrada : null;
+    }
+
+    public void guardar(String clave, T valor) {
+        entradas.put(clave, new Entrada<>(valor, System.nanoTime(), false));
+    }
+
+    // despues de una escritura: la copia ya no se sirve como buena, pero sigue de respaldo
+    // por si el backend falla antes de poder leer la nueva
+    public void invalidar(String clave) {
+        entradas.asMap().computeIfPresent(clave,
+                (k, entrada) -> new Entrada<>(entrada.valor(), entrada.guardada(), true));
+    }
+
+    // lo que ya no existe no se sirve ni de respaldo
+    public void borrar(String clave) {
+        entradas.invalidate(clave);
+    }
+
+    public RespuestaCache<T> responder(Entrada<T> entrada, EstadoCache estado) {
+        contar(estado);
+        return new RespuestaCache<>(entrada.valor(), estado, Duration.ofNanos(entrada.edad()));
+    }
+
+    public void contar(EstadoCache estado) {
+        respuestas.get(estado).increment();
+    }
+
+    // refresco en segundo plano: como mucho uno a la vez por clave y sus errores no llegan a nadie
+    public void revalidar(String clave, Supplier<Mono<T>> origen) {
+        if (!revalidando.add(clave)) {
+            return;
+        }
+        pedir(clave, origen)
+                .doFinally(senal -> revalidando.remove(clave))
+                .subscribe(valor -> { },
+                        e -> log.debug("Revalidacion de " + nombre + "/" + clave + " fallida: " + e.getMessage()));
+    }
+
+    // un 404 o una respuesta vacia borran la entrada: no se debe seguir sirviendo algo que ya no existe
+    private Mono<T> pedir(String clave, Supplier<Mono<T>> origen) {
+        return origen.get()
+                .doOnNext(valor -> guardar(clave, valor))
+                .switchIfEmpty(Mono.fromRunnable(() -> borrar(clave)))
+                .doOnError(e -> {
+                    if (traductor.traducir(e).getTipo() == TipoError.NO_ENCONTRADO) {
+                        borrar(clave);
+                    }
+                });
+    }
+
+    public record Entrada<T>(T valor, long guardada, boolean invalidada) {
+
+        long edad() {
+            return System.nanoTime() - guardada;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.springboot.webflux.client.app.cache;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// copia los bytes de un flujo sin tocarlo (los buffers siguen su camino sin leerse), para
+// guardarlo en cache mientras se reenvia en streaming. Cada buffer se copia una vez a su trozo
+// y los trozos se juntan al completar; si pasa del limite se deja de copiar
+public class CopiaBytes {
+
+    private CopiaBytes() {
+    }
+
+    public static Flux<DataBuffer> copiar(Flux<DataBuffer> origen, int limite, Consumer<byte[]> alCompletar) {
+        return Flux.defer(() -> {
+            List<byte[]> trozos = new ArrayList<>();
+            int[] copiados = {0};
+            return origen
+                    .doOnNext(buffer -> {
+                        int tamano = buffer.readableByteCount();
+                        if (copiados[0] < 0 || copiados[0] + tamano > limite) {
+                            copiados[0] = -1;
+                            trozos.clear();
+                            return;
+                        }
+                        byte[] trozo = new byte[tamano];
+                        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(trozo), 0, tamano);
+                        trozos.add(trozo);
+                        copiados[0] += tamano;
+                    })
+                    .doOnComplete(() -> {
+                        if (copiados[0] >= 0) {
+                            alCompletar.accept(juntar(trozos, copiados[0]));
+                        }
+                    });
+        });
+    }
+
+    private static byte[] juntar(List<byte[]> trozos, int tamano) {
+        if (trozos.size() == 1) {
+            return trozos.get(0);
+        }
+        byte[] copia = new byte[tamano];
+        int posicion = 0;
+        for (byte[] trozo : trozos) {
+            System.arraycopy(trozo, 0, copia, posicion, trozo.length);
+            posicion += trozo.length;
+        }
+        return copia;
+    }
+}
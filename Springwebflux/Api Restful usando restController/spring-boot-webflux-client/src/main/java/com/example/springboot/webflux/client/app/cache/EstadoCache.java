@@ -0,0 +1,18 @@
+package com.example.springboot.webflux.client.app.cache;
+
+// de donde sale una respuesta; se envia al cliente en la cabecera X-Cache
+public enum EstadoCache {
+
+    // recien pedida al backend
+    MISS,
+    // en cache y aun fresca
+    HIT,
+    // caducada pero dentro de la ventana de revalidacion: se sirve ya y se refresca en segundo plano
+    STALE,
+    // el backend ha fallado y se sirve la ultima copia buena
+    STALE_IF_ERROR;
+
+    public String cabecera() {
+        return name().replace('_', '-');
+    }
+}
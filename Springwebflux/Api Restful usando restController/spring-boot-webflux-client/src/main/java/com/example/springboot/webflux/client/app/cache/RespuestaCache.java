@@ -0,0 +1,16 @@
+package com.example.springboot.webflux.client.app.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+
+public record RespuestaCache<T>(T valor, EstadoCache estado, Duration edad) {
+
+    // X-Cache con el estado y Age con los segundos desde que se obtuvo del backend
+    public void cabeceras(HttpHeaders headers) {
+        headers.set("X-Cache", estado.cabecera());
+        if (estado != EstadoCache.MISS) {
+            headers.set(HttpHeaders.AGE, String.valueOf(edad.toSeconds()));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.springboot.webflux.client.app.errores;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+// circuito hacia el backend. Mira el resultado de las ultimas N llamadas y, si fallan por
+// encima del umbral (solo cuentan timeouts, errores de conexion y 5xx), se abre: durante un
+// tiempo las llamadas fallan al instante con CIRCUITO_ABIERTO en vez de acumularse contra un
+// backend degradado. Pasado ese tiempo se deja pasar una sola llamada de prueba que decide si
+// se cierra o se vuelve a abrir
+@Component
+public class CircuitoBackend {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitoBackend.class);
+
+    private final TraductorErrores traductor;
+
+    private final int minimo;
+
+    private final int umbral;
+
+    private final long abiertoNanos;
+
+    // 1 = fallo, 0 = exito
+    private final AtomicIntegerArray resultados;
+
+    private final AtomicLong registrados = new AtomicLong();
+
+    private final AtomicInteger fallos = new AtomicInteger();
+
+    // 0 mientras esta cerrado
+    private volatile long abiertoHasta;
+
+    private final AtomicBoolean probando = new AtomicBoolean();
+
+    private final Counter aperturas;
+
+    public CircuitoBackend(TraductorErrores traductor,
+                           @Value("${config.circuito.ventana:50}") int ventana,
+                           @Value("${config.circuito.minimo:20}") int minimo,
+                           @Value("${config.circuito.umbral:50}") int umbral,
+                           @Value("${config.circuito.abierto:PT10S}") Duration abierto,
+                           MeterRegistry registry) {
+        this.traductor = traductor;
+        this.resultados = new AtomicIntegerArray(ventana);
+        this.minimo = Math.min(minimo, ventana);
+        this.umbral = umbral;
+        this.abiertoNanos = abierto.toNanos();
+        this.aperturas = Counter.builder("backend.circuito.aperturas").register(registry);
+        Gauge.builder("backend.circuito.abierto", this, circuito -> circuito.abiertoHasta != 0 ? 1 : 0)
+                .register(registry);
+    }
+
+    public <T> Mono<T> proteger(Mono<T> llamada) {
+        return Mono.defer(() -> {
+            Boolean prueba = permitir();
+            if (prueba == null) {
+                return Mono.error(traductor.circuitoAbierto());
+            }
+            return llamada
+                    .doOnSuccess(valor -> exito(prueba))
+                    .doOnError(e -> resultado(e, prueba))
+                    .doOnCancel(() -> cancelado(prueba));
+        });
+    }
+
+    public <T> Flux<T> proteger(Flux<T> llamada) {
+        return Flux.defer(() -> {
+            Boolean prueba = permitir();
+            if (prueba == null) {
+                return Flux.error(traductor.circuitoAbierto());
+            }
+            return llamada
+                    .doOnComplete(() -> exito(prueba))
+                    .doOnError(e -> resultado(e, prueba))
+                    .doOnCancel(() -> cancelado(prueba));
+        });
+    }
+
+    // null si no se puede llamar; true si la llamada es la prueba del circuito medio abierto
+    private Boolean permitir() {
+        long hasta = abiertoHasta;
+        if (hasta == 0) {
+            return false;
+        }
+        if (System.nanoTime() - hasta < 0) {
+            return null;
+        }
+        return probando.compareAndSet(false, true) ? true : null;
+    }
+
+    private void resultado(Throwable e, boolean prueba) {
+        if (traductor.traducir(e).getTipo().isFallaBackend()) {
+            fallo(prueba);
+        } else {
+            exito(prueba);
+        }
+    }
+
+    private void exito(boolean prueba) {
+        if (prueba) {
+            cerrar();
+        } else {
+            registrar(0);
+        }
+    }
+
+    private void fallo(boolean prueba) {
+        if (prueba) {
+            abrir();
+            probando.set(false);
+        } else if (registrar(1) && abiertoHasta == 0) {
+            abrir();
+        }
+    }
+
+    // una prueba cancelada no decide nada: se permite otra
+    private void cancelado(boolean prueba) {
+        if (prueba) {
+            probando.set(false);
+        }
+    }
+
+    // true si con este resultado se supera el umbral de fallos
+    private boolean registrar(int resultado) {
+        long indice = registrados.getAndIncrement();
+        int previo = resultados.getAndSet((int) (indice % resultados.length()), resultado);
+        int actuales = fallos.addAndGet(resultado - previo);
+        long total = Math.min(indice + 1, resultados.length());
+        return total >= minimo && actuales * 100L >= umbral * total;
+    }
+
+    private void abrir() {
+        long hasta = System.nanoTime() + abiertoNanos;
+        abiertoHasta = hasta == 0 ? 1 : hasta;
+        aperturas.increment();
+        log.warn("Circuito hacia el backend abierto durante " + abiertoNanos / 1_000_000 + " ms");
+    }
+
+    private synchronized void cerrar() {
+        for (int i = 0; i < resultados.length(); i++) {
+            resultados.set(i, 0);
+        }
+        fallos.set(0);
+        registrados.set(0);
+        abiertoHasta = 0;
+        probando.set(false);
+        log.info("Circuito hacia el backend cerrado");
+    }
+}
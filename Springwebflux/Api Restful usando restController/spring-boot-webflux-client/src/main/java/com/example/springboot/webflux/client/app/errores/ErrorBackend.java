@@ -0,0 +1,49 @@
+package com.example.springboot.webflux.client.app.errores;
+
+// cualquier fallo de una llamada al backend, ya clasificado
+public class ErrorBackend extends RuntimeException {
+
+    private final TipoError tipo;
+
+    private final int estado;
+
+    private final String cuerpo;
+
+    private final String reintentarTras;
+
+    public ErrorBackend(TipoError tipo, String mensaje, Throwable causa) {
+        this(tipo, tipo.getEstado().value(), null, mensaje, causa);
+    }
+
+    public ErrorBackend(TipoError tipo, int estado, String cuerpo, String mensaje, Throwable causa) {
+        this(tipo, estado, cuerpo, null, mensaje, causa);
+    }
+
+    public ErrorBackend(TipoError tipo, int estado, String cuerpo, String reintentarTras, String mensaje,
+                        Throwable causa) {
+        super(mensaje, causa);
+        this.tipo = tipo;
+        this.estado = estado;
+        this.cuerpo = cuerpo;
+        this.reintentarTras = reintentarTras;
+    }
+
+    public TipoError getTipo() {
+        return tipo;
+    }
+
+    // estado http que se devuelve al cliente
+    public int getEstado() {
+        return estado;
+    }
+
+    // cuerpo de la respuesta de error del backend, si lo hubo
+    public String getCuerpo() {
+        return cuerpo;
+    }
+
+    // Retry-After del backend, que se reenvia al cliente tal cual
+    public String getReintentarTras() {
+        return reintentarTras;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.springboot.webflux.client.app.errores;
+
+import org.springframework.http.HttpStatus;
+
+// clase de fallo al llamar al backend y lo que se hace con cada una:
+// si se puede reintentar (solo peticiones idempotentes), si cuenta para abrir el circuito
+// y si se puede responder con un dato en cache en lugar del error
+public enum TipoError {
+
+    NO_ENCONTRADO(HttpStatus.NOT_FOUND, false, false),
+    // 4xx del backend (validacion, conflicto...): se devuelve tal cual
+    PETICION(HttpStatus.BAD_REQUEST, false, false),
+    TIMEOUT(HttpStatus.GATEWAY_TIMEOUT, true, true),
+    CONEXION(HttpStatus.BAD_GATEWAY, true, true),
+    SERVIDOR(HttpStatus.BAD_GATEWAY, true, true),
+    // 503 con Retry-After: el backend descarta carga a proposito (limite por cliente o global).
+    // Reintentar a los 50 ms solo le suma carga y no es una averia para el circuito
+    SATURADO(HttpStatus.SERVICE_UNAVAILABLE, false, false),
+    DECODIFICACION(HttpStatus.BAD_GATEWAY, false, false),
+    // el circuito esta abierto: ni se llega a llamar al backend
+    CIRCUITO_ABIERTO(HttpStatus.SERVICE_UNAVAILABLE, false, false),
+    DESCONOCIDO(HttpStatus.INTERNAL_SERVER_ERROR, false, false);
+
+    private final HttpStatus estado;
+
+    private final boolean reintentable;
+
+    private final boolean fallaBackend;
+
+    TipoError(HttpStatus estado, boolean reintentable, boolean fallaBackend) {
+        this.estado = estado;
+        this.reintentable = reintentable;
+        this.fallaBackend = fallaBackend;
+    }
+
+    public HttpStatus getEstado() {
+        return estado;
+    }
+
+    public boolean isReintentable() {
+        return reintentable;
+    }
+
+    // cuenta como fallo del backend para el circuito
+    public boolean isFallaBackend() {
+        return fallaBackend;
+    }
+
+    // el backend no pudo responder: un dato algo antiguo es mejor que el error
+    public boolean isAdmiteCache() {
+        return fallaBackend || this == CIRCUITO_ABIERTO || this == SATURADO;
+    }
+}
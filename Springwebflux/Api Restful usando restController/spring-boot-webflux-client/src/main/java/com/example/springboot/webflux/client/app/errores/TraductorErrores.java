@@ -0,0 +1,90 @@
+package com.example.springboot.webflux.client.app.errores;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.codec.CodecException;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.netty.http.client.PrematureCloseException;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+// traduce las excepciones de WebClient, reactor netty y los codecs a ErrorBackend.
+// Cada error se cuenta una sola vez, en backend.errores con la etiqueta de su tipo
+@Component
+public class TraductorErrores {
+
+    private final Map<TipoError, Counter> contadores = new EnumMap<>(TipoError.class);
+
+    public TraductorErrores(MeterRegistry registry) {
+        for (TipoError tipo : TipoError.values()) {
+            contadores.put(tipo, Counter.builder("backend.errores")
+                    .tag("tipo", tipo.name().toLowerCase())
+                    .register(registry));
+        }
+    }
+
+    public ErrorBackend traducir(Throwable error) {
+        if (error instanceof ErrorBackend ya) {
+            return ya;
+        }
+        ErrorBackend traducido = clasificar(error);
+        contadores.get(traducido.getTipo()).increment();
+        return traducido;
+    }
+
+    // solo el tipo, sin contarlo: para quien necesita clasificar un error que luego se traduce
+    // (y se cuenta) en otro punto de la cadena
+    public TipoError tipo(Throwable error) {
+        return error instanceof ErrorBackend ya ? ya.getTipo() : clasificar(error).getTipo();
+    }
+
+    public ErrorBackend circuitoAbierto() {
+        contadores.get(TipoError.CIRCUITO_ABIERTO).increment();
+        return new ErrorBackend(TipoError.CIRCUITO_ABIERTO, "Backend no disponible (circuito abierto)", null);
+    }
+
+    private ErrorBackend clasificar(Throwable error) {
+        if (error instanceof WebClientResponseException respuesta) {
+            int estado = respuesta.getStatusCode().value();
+            if (estado == 404) {
+                return new ErrorBackend(TipoError.NO_ENCONTRADO, estado, respuesta.getResponseBodyAsString(),
+                        respuesta.getMessage(), error);
+            }
+            String reintentarTras = respuesta.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+            if (estado == 503 && reintentarTras != null) {
+                return new ErrorBackend(TipoError.SATURADO, estado, respuesta.getResponseBodyAsString(),
+                        reintentarTras, "Backend saturado, reintentar tras " + reintentarTras, error);
+            }
+            TipoError tipo = respuesta.getStatusCode().is4xxClientError() ? TipoError.PETICION : TipoError.SERVIDOR;
+            return new ErrorBackend(tipo, tipo == TipoError.PETICION ? estado : tipo.getEstado().value(),
+                    respuesta.getResponseBodyAsString(), respuesta.getMessage(), error);
+        }
+        // timeouts de reactor (operador timeout) y de netty (read/write timeout) pueden llegar envueltos;
+        // un ResponseStatusException es nuestro (p.ej. subida demasiado grande), no del backend
+        for (Throwable causa = error; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ResponseStatusException propio) {
+                return new ErrorBackend(TipoError.PETICION, propio.getStatusCode().value(), null,
+                        propio.getReason() != null ? propio.getReason() : propio.getMessage(), error);
+            }
+            if (causa instanceof TimeoutException || causa instanceof io.netty.handler.timeout.TimeoutException) {
+                return new ErrorBackend(TipoError.TIMEOUT, "Timeout llamando al backend", error);
+            }
+        }
+        if (error instanceof CodecException || error instanceof DataBufferLimitException) {
+            return new ErrorBackend(TipoError.DECODIFICACION, "Respuesta del backend ilegible: " + error.getMessage(), error);
+        }
+        if (error instanceof WebClientRequestException || error instanceof PrematureCloseException
+                || error instanceof IOException) {
+            return new ErrorBackend(TipoError.CONEXION, "Sin conexion con el backend: " + error.getMessage(), error);
+        }
+        return new ErrorBackend(TipoError.DESCONOCIDO, String.valueOf(error.getMessage()), error);
+    }
+}
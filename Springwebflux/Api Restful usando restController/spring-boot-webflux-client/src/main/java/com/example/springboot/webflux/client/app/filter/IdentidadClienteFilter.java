@@ -0,0 +1,42 @@
+package com.example.springboot.webflux.client.app.filter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+// el backend limita por cliente, y sin esto todo lo que pasa por el gateway contaria como un
+// solo cliente (la ip del gateway). El WebFilter guarda la ip del cliente original en el
+// contexto de reactor y el filtro del WebClient la manda en la cabecera a cada llamada,
+// reintentos y hedges incluidos
+@Component
+public class IdentidadClienteFilter implements WebFilter {
+
+    private static final String CLAVE = IdentidadClienteFilter.class.getName() + ".cliente";
+
+    @Value("${config.backend.cabecera-cliente:X-Cliente-Id}")
+    private String cabecera;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        InetSocketAddress remoto = exchange.getRequest().getRemoteAddress();
+        if (remoto == null || remoto.getAddress() == null) {
+            return chain.filter(exchange);
+        }
+        String cliente = remoto.getAddress().getHostAddress();
+        return chain.filter(exchange)
+                .contextWrite(contexto -> contexto.put(CLAVE, cliente));
+    }
+
+    public ExchangeFilterFunction filtro() {
+        return (request, next) -> Mono.deferContextual(contexto -> next.exchange(contexto.<String>getOrEmpty(CLAVE)
+                .map(cliente -> ClientRequest.from(request).header(cabecera, cliente).build())
+                .orElse(request)));
+    }
+}
@@ -1,67 +1,128 @@
 package com.example.springboot.webflux.client.app.handler;
 
+import com.example.springboot.webflux.client.app.cache.CacheRespaldo;
+import com.example.springboot.webflux.client.app.cache.CopiaBytes;
+import com.example.springboot.webflux.client.app.cache.EstadoCache;
+import com.example.springboot.webflux.client.app.cache.RespuestaCache;
+import com.example.springboot.webflux.client.app.errores.ErrorBackend;
+import com.example.springboot.webflux.client.app.errores.TipoError;
+import com.example.springboot.webflux.client.app.errores.TraductorErrores;
 import com.example.springboot.webflux.client.app.models.Producto;
 import com.example.springboot.webflux.client.app.models.services.ProductoService;
+import com.example.springboot.webflux.client.app.subidas.RelevoSubidas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 @Component
 public class ProductoHandler {
 
+    private static final String LISTADO = "todos";
+
     @Autowired
     private ProductoService service;
 
+    @Autowired
+    private RelevoSubidas relevo;
+
+    @Autowired
+    private TraductorErrores traductor;
+
+    @Autowired
+    private CacheRespaldo<Producto> cacheProductos;
+
+    @Autowired
+    private CacheRespaldo<byte[]> cacheListado;
+
+    @Value("${config.cache.listado.maximo-bytes:8MB}")
+    private DataSize maxListado;
+
+    // el listado se reenvia sin pasar por Producto: ni decodificar ni volver a codificar
+    @Value("${config.listado.directo:true}")
+    private boolean listadoDirecto;
+
+    // ademas de reenviarlo, guarda una copia del listado directo para responder con ella si el
+    // backend falla antes del primer byte. Cuesta copiar a heap cada listado servido
+    @Value("${config.listado.cache-respaldo:false}")
+    private boolean listadoConRespaldo;
+
     public Mono<ServerResponse> listar(ServerRequest request){
+        if (listadoDirecto && !listadoConRespaldo) {
+            return errorHandler(alPrimerElemento(service.findAllJson(), json -> ServerResponse.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(BodyInserters.fromDataBuffers(json))));
+        }
+        if (listadoDirecto) {
+            // siempre se pide al backend y se reenvia en streaming; la copia (si no es demasiado
+            // grande) solo se usa de respaldo, nunca en lugar de la respuesta del backend
+            CacheRespaldo.Entrada<byte[]> anterior = cacheListado.entrada(LISTADO);
+            Flux<DataBuffer> json = CopiaBytes.copiar(service.findAllJson(), (int) maxListado.toBytes(),
+                    bytes -> cacheListado.guardar(LISTADO, bytes));
+            return errorHandler(alPrimerElemento(json, resto -> {
+                        cacheListado.contar(EstadoCache.MISS);
+                        return ServerResponse.ok()
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("X-Cache", EstadoCache.MISS.cabecera())
+                                .body(BodyInserters.fromDataBuffers(resto));
+                    })
+                    .onErrorResume(e -> cacheListado.respaldo(LISTADO, anterior, e)
+                            .flatMap(this::listadoDesdeCache)));
+        }
+        return errorHandler(alPrimerElemento(service.findAll(), productos -> ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(productos, Producto.class)));
+    }
+
+    private Mono<ServerResponse> listadoDesdeCache(RespuestaCache<byte[]> respuesta){
         return ServerResponse.ok()
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(service.findAll(), Producto.class);
+                .headers(respuesta::cabeceras)
+                .bodyValue(respuesta.valor());
     }
 
     public Mono<ServerResponse> ver(ServerRequest request){
         String id = request.pathVariable("id");
-        return errorHandler(service.findById(id).flatMap(p ->
+        return errorHandler(cacheProductos.consultar(id, () -> service.findById(id)).flatMap(respuesta ->
                 ServerResponse.ok()
                         .contentType(MediaType.APPLICATION_JSON)
-                        .syncBody(p)
-                        .switchIfEmpty(ServerResponse.notFound()
-                                .build())
-        ));
+                        .headers(respuesta::cabeceras)
+                        .bodyValue(respuesta.valor())
+        ).switchIfEmpty(ServerResponse.notFound()
+                .build()));
     }
 
     public Mono<ServerResponse> crear(ServerRequest request){
 
         Mono<Producto> producto = request.bodyToMono(Producto.class);
 
-        return producto.flatMap(p -> {
+        return errorHandler(producto.flatMap(p -> {
             if(p.getCreateAt()==null){
                 p.setCreateAt(new Date());
             }
             return service.save(p);
-        }).flatMap(p -> ServerResponse.created(URI.create("/api/client/".concat(p.getId())))
+        }).doOnNext(p -> cacheListado.invalidar(LISTADO)).flatMap(p -> ServerResponse.created(URI.create("/api/client/".concat(p.getId())))
                 .contentType(MediaType.APPLICATION_JSON)
-                .syncBody(p))
-                .onErrorResume(error -> {
-                    WebClientResponseException errorResponse = (WebClientResponseException)  error;
-                    if(errorResponse.getStatusCode() == HttpStatus.BAD_REQUEST){
-                        return ServerResponse.badRequest()
-                                .contentType(MediaType.APPLICATION_JSON)
-                                .syncBody(errorResponse.getResponseBodyAsString());
-                    }else{
-                        return Mono.error(errorResponse);
-                    }
-                });
+                .bodyValue(p)));
     }
 
     public Mono<ServerResponse> editar(ServerRequest request){
@@ -72,43 +133,101 @@ public class ProductoHandler {
 
         return errorHandler(producto
                 .flatMap(p -> service.update(p, id))
+                .doOnNext(p -> invalidar(id))
                 .flatMap(p -> ServerResponse.created(URI.create("/api/client/".concat(p.getId())))
                         .contentType(MediaType.APPLICATION_JSON)
-                        .syncBody(p)))
+                        .bodyValue(p)))
                 ;
     }
 
     public Mono<ServerResponse> eliminar(ServerRequest request){
         String id = request.pathVariable("id");
-        return errorHandler(service.delete(id).then(ServerResponse.noContent().build())
+        return errorHandler(service.delete(id)
+                .then(Mono.fromRunnable(() -> {
+                    cacheProductos.borrar(id);
+                    cacheListado.invalidar(LISTADO);
+                }))
+                .then(ServerResponse.noContent().build())
                 );
 
     }
 
     public Mono<ServerResponse> upload(ServerRequest request){
         String id = request.pathVariable("id");
-        return errorHandler(request.multipartData().map(multipart ->
-                multipart.toSingleValueMap().get("file"))
-                .cast(FilePart.class)
-                .flatMap(file -> service.upload(file, id))
+        if (relevo.excedido(request.headers().contentLength().orElse(-1))) {
+            return ServerResponse.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+
+        // la parte "file" se reenvia mientras se recibe; el resto de partes se descarta
+        Mono<Producto> subida = request.bodyToFlux(PartEvent.class)
+                .windowUntil(PartEvent::isLast)
+                .concatMap(parte -> parte.switchOnFirst((primera, eventos) -> {
+                    if (primera.hasValue() && primera.get() instanceof FilePartEvent archivo
+                            && "file".equals(archivo.name())) {
+                        return service.upload(archivo.filename(), archivo.headers().getContentType(),
+                                eventos.map(PartEvent::content), id);
+                    }
+                    return eventos.doOnNext(evento -> DataBufferUtils.release(evento.content()))
+                            .then(Mono.<Producto>empty());
+                }))
+                .next();
+
+        return errorHandler(subida
+                .doOnNext(p -> invalidar(id))
                 .flatMap(p -> ServerResponse.created(URI.create("/api/client/".concat(id)))
                         .contentType(MediaType.APPLICATION_JSON)
-                        .syncBody(p)));
+                        .bodyValue(p)));
+    }
+
+    // ?categoria=<id> opcional: si la UI ya la conoce, las tres consultas al backend van en paralelo
+    public Mono<ServerResponse> detalle(ServerRequest request){
+        String id = request.pathVariable("id");
+        String categoria = request.queryParam("categoria").orElse(null);
+        return errorHandler(service.findDetalle(id, categoria)
+                .flatMap(detalle -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(detalle)));
+    }
+
+    // la respuesta de un listado en streaming se compromete con el primer elemento; si el
+    // backend falla antes, el error todavia puede responderse con su estado (errorHandler)
+    private <T> Mono<ServerResponse> alPrimerElemento(Flux<T> flujo,
+                                                       Function<Flux<T>, Mono<ServerResponse>> respuesta){
+        return flujo.switchOnFirst((primera, resto) -> primera.isOnError()
+                        ? Mono.<ServerResponse>error(primera.getThrowable())
+                        : respuesta.apply(resto), false)
+                .single();
     }
 
+    private void invalidar(String id){
+        cacheProductos.invalidar(id);
+        cacheListado.invalidar(LISTADO);
+    }
+
+    // los errores propios de la peticion (ResponseStatusException) los resuelve spring; el
+    // resto viene del backend y se responde segun su tipo
     private Mono<ServerResponse> errorHandler(Mono<ServerResponse> response){
-        return response.onErrorResume(error -> {
-            WebClientResponseException errorResponse = (WebClientResponseException)  error;
-            if(errorResponse.getStatusCode() == HttpStatus.NOT_FOUND){
-                Map<String, Object> body = new HashMap<>();
-                body.put("error", "No existe el producto: ".concat(errorResponse.getMessage()));
-                body.put("timestamp", new Date());
-                body.put("status", errorResponse.getStatusCode().value());
-                return ServerResponse.status(HttpStatus.NOT_FOUND)
-                        .syncBody(body);
-            }else{
-                return Mono.error(errorResponse);
+        return response.onErrorResume(error -> !(error instanceof ResponseStatusException), error -> {
+            ErrorBackend errorBackend = traductor.traducir(error);
+            if(errorBackend.getTipo() == TipoError.PETICION && errorBackend.getCuerpo() != null
+                    && !errorBackend.getCuerpo().isEmpty()){
+                return ServerResponse.status(errorBackend.getEstado())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(errorBackend.getCuerpo());
             }
+            Map<String, Object> body = new HashMap<>();
+            body.put("error", errorBackend.getTipo() == TipoError.NO_ENCONTRADO
+                    ? "No existe el producto: ".concat(errorBackend.getMessage())
+                    : errorBackend.getMessage());
+            body.put("timestamp", new Date());
+            body.put("status", errorBackend.getEstado());
+            return ServerResponse.status(errorBackend.getEstado())
+                    .headers(cabeceras -> {
+                        if(errorBackend.getReintentarTras() != null){
+                            cabeceras.set(HttpHeaders.RETRY_AFTER, errorBackend.getReintentarTras());
+                        }
+                    })
+                    .bodyValue(body);
         });
     }
 }
@@ -0,0 +1,58 @@
+package com.example.springboot.webflux.client.app.models;
+
+import java.util.List;
+
+// documento compuesto para la pagina de detalle: una sola llamada en lugar de tres
+public class DetalleProducto {
+
+    private Producto producto;
+
+    private Categoria categoria;
+
+    private List<Producto> relacionados;
+
+    // partes que no llegaron a tiempo o fallaron y se rellenaron con lo que se tenia
+    private List<String> parciales;
+
+    public DetalleProducto() {
+    }
+
+    public DetalleProducto(Producto producto, Categoria categoria, List<Producto> relacionados, List<String> parciales) {
+        this.producto = producto;
+        this.categoria = categoria;
+        this.relacionados = relacionados;
+        this.parciales = parciales;
+    }
+
+    public Producto getProducto() {
+        return producto;
+    }
+
+    public void setProducto(Producto producto) {
+        this.producto = producto;
+    }
+
+    public Categoria getCategoria() {
+        return categoria;
+    }
+
+    public void setCategoria(Categoria categoria) {
+        this.categoria = categoria;
+    }
+
+    public List<Producto> getRelacionados() {
+        return relacionados;
+    }
+
+    public void setRelacionados(List<Producto> relacionados) {
+        this.relacionados = relacionados;
+    }
+
+    public List<String> getParciales() {
+        return parciales;
+    }
+
+    public void setParciales(List<String> parciales) {
+        this.parciales = parciales;
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.springboot.webflux.client.app.models.services;
 
+import com.example.springboot.webflux.client.app.models.Categoria;
+import com.example.springboot.webflux.client.app.models.DetalleProducto;
 import com.example.springboot.webflux.client.app.models.Producto;
-import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -9,6 +12,9 @@ public interface ProductoService {
 
     public Flux<Producto> findAll();
 
+    // el listado en json tal cual llega del backend, sin decodificar
+    public Flux<DataBuffer> findAllJson();
+
     public Mono<Producto> findById(String id);
 
     public Mono<Producto> save(Producto producto);
@@ -17,7 +23,15 @@ public interface ProductoService {
 
     public Mono<Void> delete(String id);
 
-    public Mono<Producto> upload(FilePart file, String id);
+    // el contenido se reenvia al backend segun llega, sin pasar por memoria ni disco
+    public Mono<Producto> upload(String nombre, MediaType tipo, Flux<DataBuffer> contenido, String id);
+
+    public Mono<Categoria> findCategoria(String id);
+
+    public Flux<Producto> findByCategoria(String categoriaId, int limite);
+
+    // categoriaId es opcional: si se conoce, las tres consultas salen a la vez
+    public Mono<DetalleProducto> findDetalle(String id, String categoriaId);
 
 
 
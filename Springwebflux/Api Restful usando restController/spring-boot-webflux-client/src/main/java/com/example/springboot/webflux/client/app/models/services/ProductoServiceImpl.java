@@ -1,32 +1,107 @@
 package com.example.springboot.webflux.client.app.models.services;
 
+import com.example.springboot.webflux.client.app.JacksonConfig;
+import com.example.springboot.webflux.client.app.balanceo.CargaInstancias;
+import com.example.springboot.webflux.client.app.balanceo.Hedging;
+import com.example.springboot.webflux.client.app.errores.CircuitoBackend;
+import com.example.springboot.webflux.client.app.errores.ErrorBackend;
+import com.example.springboot.webflux.client.app.errores.TraductorErrores;
+import com.example.springboot.webflux.client.app.models.Categoria;
+import com.example.springboot.webflux.client.app.models.DetalleProducto;
 import com.example.springboot.webflux.client.app.models.Producto;
+import com.example.springboot.webflux.client.app.subidas.RelevoSubidas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
-import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class ProductoServiceImpl implements ProductoService{
 
     @Autowired
     private  WebClient.Builder client;
+
+    @Autowired
+    private Hedging hedging;
+
+    @Autowired
+    private RelevoSubidas relevo;
+
+    @Autowired
+    private TraductorErrores traductor;
+
+    @Autowired
+    private CircuitoBackend circuito;
+
+    @Value("${config.reintentos.maximo:2}")
+    private int maxReintentos;
+
+    @Value("${config.reintentos.espera:PT50MS}")
+    private Duration esperaReintento;
+
+    @Value("${config.backend.smile:false}")
+    private boolean smile;
+
+    // plazo de cada intento de una llamada que devuelve un solo valor; los flujos quedan
+    // cubiertos por config.backend.response-timeout entre lectura y lectura
+    @Value("${config.backend.plazo:PT5S}")
+    private Duration plazoLlamada;
+
+    // las subidas mandan el archivo entero dentro de la llamada
+    @Value("${config.backend.plazo-subida:PT60S}")
+    private Duration plazoSubida;
+
+    @Value("${config.detalle.timeout.producto:PT1S}")
+    private Duration timeoutProducto;
+
+    @Value("${config.detalle.timeout.categoria:PT300MS}")
+    private Duration timeoutCategoria;
+
+    @Value("${config.detalle.timeout.relacionados:PT500MS}")
+    private Duration timeoutRelacionados;
+
+    @Value("${config.detalle.relacionados:8}")
+    private int maxRelacionados;
+
+    private static final Logger log = LoggerFactory.getLogger(ProductoServiceImpl.class);
     @Override
     public Flux<Producto> findAll() {
 
 
-        return client.build().get().accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .flatMapMany(response -> response.bodyToFlux(Producto.class));
+        return llamar(hedging.flux(atributos -> client.build().get()
+                .attributes(atributos)
+                .accept(aceptados(JacksonConfig.APPLICATION_STREAM_SMILE))
+                .retrieve()
+                .bodyToFlux(Producto.class)));
+    }
+
+    @Override
+    public Flux<DataBuffer> findAllJson() {
+        // los buffers de reactor netty pasan al servidor sin copiarse; se liberan al escribirse.
+        // Si una rama del hedge llega a emitir algo y se descarta, se libera aqui
+        return llamar(hedging.flux(atributos -> client.build().get()
+                        .attributes(atributos)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .retrieve()
+                        .bodyToFlux(DataBuffer.class)))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
     }
 
     @Override
@@ -36,64 +111,159 @@ public class ProductoServiceImpl implements ProductoService{
 
         params.put("id", id);
 
-        return client.build().get()
+        return llamar(hedging.mono(atributos -> client.build().get()
                 .uri("/{id}", params)
-                .accept(MediaType.APPLICATION_JSON)
+                .attributes(atributos)
+                .accept(aceptados(JacksonConfig.APPLICATION_SMILE))
                 .retrieve()
-                .bodyToMono(Producto.class);
+                .bodyToMono(Producto.class)), true);
               //  .exchange()
               //  .flatMap(response -> response.bodyToMono(Producto.class));
     }
 
     @Override
     public Mono<Producto> save(Producto producto) {
-        return client.build().post()
-                .accept(MediaType.APPLICATION_JSON)
-                .contentType(MediaType.APPLICATION_JSON)
-                .syncBody(producto)//otra forma
+        return llamar(client.build().post()
+                .accept(aceptados(JacksonConfig.APPLICATION_SMILE))
+                .contentType(contenido())
+                .bodyValue(producto)//otra forma
                 //.body(BodyInserters.fromObject(producto))
                 .retrieve()
-                .bodyToMono(Producto.class);
+                .bodyToMono(Producto.class), false);
     }
 
     @Override
     public Mono<Producto> update(Producto producto, String id) {
 
-        return client.build().put()
+        return llamar(client.build().put()
                 .uri("/{id}", Collections.singletonMap("id", id))//otra forma
-                .accept(MediaType.APPLICATION_JSON)
-                .contentType(MediaType.APPLICATION_JSON)
-                .syncBody(producto)//otra forma
+                .accept(aceptados(JacksonConfig.APPLICATION_SMILE))
+                .contentType(contenido())
+                .bodyValue(producto)//otra forma
                 .retrieve()
-                .bodyToMono(Producto.class);
+                .bodyToMono(Producto.class), true);
     }
 
     @Override
     public Mono<Void> delete(String id) {
-        return client.build().delete()
+        return llamar(client.build().delete()
                 .uri("/{id}", Collections.singletonMap("id", id))
                 .retrieve()
-                .bodyToMono(Void.class);
+                .bodyToMono(Void.class), false);
 
 
     }
 
     @Override
-    public Mono<Producto> upload(FilePart file, String id) {
+    public Mono<Producto> upload(String nombre, MediaType tipo, Flux<DataBuffer> contenido, String id) {
 
         MultipartBodyBuilder parts = new MultipartBodyBuilder();
 
-        parts.asyncPart("file", file.content(), DataBuffer.class)
-                .headers(h -> {
-                    h.setContentDispositionFormData("file", file.filename());
-                });
-
+        parts.asyncPart("file", relevo.contenido(contenido), DataBuffer.class)
+                .filename(nombre)
+                .contentType(tipo != null ? tipo : MediaType.APPLICATION_OCTET_STREAM);
 
-        return  client.build().post()
+        // el contenido se consume al enviarlo: una subida nunca se reintenta
+        return relevo.medir(llamar(client.build().post()
                 .uri("/upload/{id}", Collections.singletonMap("id", id))
                 .contentType(MediaType.MULTIPART_FORM_DATA)
-                .syncBody(parts.build())
+                .bodyValue(parts.build())
                 .retrieve()
-                .bodyToMono(Producto.class);
+                .bodyToMono(Producto.class), false, plazoSubida));
+    }
+
+    @Override
+    public Mono<Categoria> findCategoria(String id) {
+        return llamar(client.build().get()
+                .uri("/categorias/{id}", Collections.singletonMap("id", id))
+                .accept(aceptados(JacksonConfig.APPLICATION_SMILE))
+                .retrieve()
+                .bodyToMono(Categoria.class), true);
+    }
+
+    @Override
+    public Flux<Producto> findByCategoria(String categoriaId, int limite) {
+        return llamar(client.build().get()
+                .uri(uri -> uri.path("/categorias/{id}/productos")
+                        .queryParam("limite", limite)
+                        .build(categoriaId))
+                .accept(aceptados(JacksonConfig.APPLICATION_STREAM_SMILE))
+                .retrieve()
+                .bodyToFlux(Producto.class));
+    }
+
+    // el producto es obligatorio (sin el no hay pagina); categoria y relacionados tienen su
+    // propio timeout y si fallan se responde igual con lo que haya, anotandolo en parciales.
+    // La latencia queda cerca de la del tramo mas lento en vez de la suma de los tres
+    @Override
+    public Mono<DetalleProducto> findDetalle(String id, String categoriaId) {
+        Mono<Producto> producto = CargaInstancias.conPlazo(findById(id), timeoutProducto).cache();
+        Mono<String> idCategoria = categoriaId != null ? Mono.just(categoriaId)
+                : producto.mapNotNull(p -> p.getCategoria() != null ? p.getCategoria().getId() : null);
+        List<String> parciales = Collections.synchronizedList(new ArrayList<>());
+
+        // si falla, la categoria embebida en el producto sirve de respaldo
+        Mono<Optional<Categoria>> categoria = idCategoria
+                .flatMap(cid -> CargaInstancias.conPlazo(findCategoria(cid), timeoutCategoria))
+                .onErrorResume(e -> parcial("categoria", e, parciales)
+                        .then(producto.mapNotNull(Producto::getCategoria)))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+
+        // uno de mas por si el propio producto sale en la lista
+        Mono<List<Producto>> relacionados = idCategoria
+                .flatMap(cid -> CargaInstancias.conPlazo(findByCategoria(cid, maxRelacionados + 1)
+                        .filter(p -> !id.equals(p.getId()))
+                        .take(maxRelacionados)
+                        .collectList(), timeoutRelacionados))
+                .onErrorResume(e -> parcial("relacionados", e, parciales).then(Mono.empty()))
+                .defaultIfEmpty(Collections.emptyList());
+
+        return Mono.zip(producto, categoria, relacionados)
+                .map(partes -> new DetalleProducto(partes.getT1(), partes.getT2().orElse(null), partes.getT3(),
+                        parciales.isEmpty() ? null : new ArrayList<>(parciales)));
+    }
+
+    private <T> Mono<T> parcial(String parte, Throwable e, List<String> parciales) {
+        log.warn("Detalle de producto sin " + parte + ": " + e);
+        parciales.add(parte);
+        return Mono.empty();
+    }
+
+    // toda llamada al backend falla con ErrorBackend y pasa por el circuito. Las idempotentes
+    // reintentan los fallos transitorios (timeout, conexion, 5xx) con backoff; con el circuito
+    // abierto no se reintenta, se falla al momento
+    private <T> Mono<T> llamar(Mono<T> peticion, boolean idempotente) {
+        return llamar(peticion, idempotente, plazoLlamada);
+    }
+
+    // cada intento tiene su plazo: un backend colgado falla con TIMEOUT, que cuenta para el
+    // circuito y para la expulsion de la instancia, en vez de acumular peticiones en espera
+    private <T> Mono<T> llamar(Mono<T> peticion, boolean idempotente, Duration plazo) {
+        Mono<T> protegida = circuito.proteger(CargaInstancias.conPlazo(peticion, plazo)
+                .onErrorMap(traductor::traducir));
+        return idempotente ? protegida.retryWhen(reintentos()) : protegida;
+    }
+
+    // los flujos no se reintentan: parte de los elementos podria haberse enviado ya
+    private <T> Flux<T> llamar(Flux<T> peticion) {
+        return circuito.proteger(peticion.onErrorMap(traductor::traducir));
+    }
+
+    private Retry reintentos() {
+        return Retry.backoff(maxReintentos, esperaReintento)
+                .filter(e -> e instanceof ErrorBackend error && error.getTipo().isReintentable())
+                .onRetryExhaustedThrow((spec, senal) -> senal.failure());
+    }
+
+    // hacia el backend usamos smile si esta habilitado, json queda como alternativa
+    // por si la instancia aun no lo soporta
+    private MediaType[] aceptados(MediaType binario){
+        return smile ? new MediaType[]{binario, MediaType.APPLICATION_JSON}
+                : new MediaType[]{MediaType.APPLICATION_JSON};
+    }
+
+    private MediaType contenido(){
+        return smile ? JacksonConfig.APPLICATION_SMILE : MediaType.APPLICATION_JSON;
     }
 }
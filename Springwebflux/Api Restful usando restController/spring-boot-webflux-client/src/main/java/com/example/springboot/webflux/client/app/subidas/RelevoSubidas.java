@@ -0,0 +1,93 @@
+package com.example.springboot.webflux.client.app.subidas;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.PayloadTooLargeException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// reenvio de una subida al backend segun llegan los bytes. Entre la lectura del cliente y la
+// escritura al backend nunca hay mas de config.subidas.buffers buffers, asi la memoria por
+// subida esta acotada y un backend lento frena al cliente en vez de acumular datos.
+// Si cualquiera de los dos lados corta, la cancelacion llega al otro y los buffers se liberan
+@Component
+public class RelevoSubidas {
+
+    private final long maximo;
+
+    private final int buffers;
+
+    private final AtomicInteger activas = new AtomicInteger();
+
+    private final Counter bytes;
+
+    private final Counter rechazadas;
+
+    private final DistributionSummary tamanos;
+
+    private final Timer duracion;
+
+    public RelevoSubidas(@Value("${config.subidas.tamano-maximo:20MB}") DataSize maximo,
+                         @Value("${config.subidas.buffers:8}") int buffers,
+                         MeterRegistry registry) {
+        this.maximo = maximo.toBytes();
+        this.buffers = buffers;
+        this.bytes = Counter.builder("gateway.subidas.bytes").baseUnit("bytes").register(registry);
+        this.rechazadas = Counter.builder("gateway.subidas.rechazadas").register(registry);
+        this.tamanos = DistributionSummary.builder("gateway.subidas.tamano").baseUnit("bytes").register(registry);
+        this.duracion = Timer.builder("gateway.subidas.duracion").register(registry);
+        Gauge.builder("gateway.subidas.activas", activas, AtomicInteger::get).register(registry);
+    }
+
+    // para rechazar de entrada lo que ya declara un tamano excesivo, sin leer el cuerpo
+    public boolean excedido(long contentLength) {
+        if (contentLength > maximo) {
+            rechazadas.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public Flux<DataBuffer> contenido(Flux<DataBuffer> contenido) {
+        return Flux.defer(() -> {
+            AtomicLong leidos = new AtomicLong();
+            return contenido
+                    .limitRate(buffers)
+                    .handle((DataBuffer buffer, SynchronousSink<DataBuffer> sink) -> {
+                        if (leidos.addAndGet(buffer.readableByteCount()) > maximo) {
+                            DataBufferUtils.release(buffer);
+                            rechazadas.increment();
+                            sink.error(new PayloadTooLargeException(null));
+                            return;
+                        }
+                        bytes.increment(buffer.readableByteCount());
+                        sink.next(buffer);
+                    })
+                    .doOnComplete(() -> tamanos.record(leidos.get()))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    public <T> Mono<T> medir(Mono<T> subida) {
+        return Mono.defer(() -> {
+            activas.incrementAndGet();
+            Timer.Sample muestra = Timer.start();
+            return subida.doFinally(senal -> {
+                activas.decrementAndGet();
+                muestra.stop(duracion);
+            });
+        });
+    }
+}
@@ -0,0 +1,131 @@
+package com.spring.webflux.app.fotos;
+
+import com.spring.webflux.app.bulkhead.Bulkhead;
+import com.spring.webflux.app.bulkhead.SchedulersBloqueantes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+// subidas y descargas concurrentes contra un LocalPhotoStore en un directorio temporal, con el
+// bulkhead de fotos sobre boundedElastic y sobre hilos virtuales (este ultimo pide java 21).
+// El retardo por trozo simula clientes que suben despacio: con hilos de plataforma cada subida
+// lenta ocupa un hilo del bulkhead mientras espera la red.
+// Uso: gradle benchmark -Pconcurrencia=64 -Poperaciones=2000 -PtamanoKb=256 -PretardoMs=2
+public class BenchmarkFotos {
+
+    // los mismos valores por defecto que config.bulkhead.upload.*
+    private static final int HILOS = 10;
+
+    private static final int COLA = 100;
+
+    private static final int TAMANO_TROZO = 64 * 1024;
+
+    private static final int FOTOS_DISTINTAS = 200;
+
+    private static final byte[] TROZO = new byte[TAMANO_TROZO];
+
+    public static void main(String[] args) throws IOException {
+        int concurrencia = argumento(args, 0, 64);
+        int operaciones = argumento(args, 1, 2000);
+        int tamanoKb = argumento(args, 2, 256);
+        int retardoMs = argumento(args, 3, 2);
+        Arrays.fill(TROZO, (byte) 'x');
+
+        System.out.println("JVM " + Runtime.version() + ", " + Runtime.getRuntime().availableProcessors()
+                + " cpu, concurrencia " + concurrencia + ", " + operaciones + " operaciones de "
+                + tamanoKb + " KB, retardo por trozo " + retardoMs + " ms");
+        System.out.printf("%-16s %-10s %10s %10s %10s %9s%n", "scheduler", "operacion", "ops/s", "p50 ms", "p99 ms", "errores");
+        for (boolean virtuales : new boolean[]{false, true}) {
+            if (virtuales && Runtime.version().feature() < 21) {
+                System.out.println("hilos virtuales: se omite, hace falta java 21");
+                continue;
+            }
+            medir(virtuales, concurrencia, operaciones, tamanoKb, retardoMs);
+        }
+    }
+
+    private static void medir(boolean virtuales, int concurrencia, int operaciones, int tamanoKb, int retardoMs)
+            throws IOException {
+        Path raiz = Files.createTempDirectory("benchmark-fotos-");
+        Bulkhead bulkhead = new Bulkhead("upload", SchedulersBloqueantes.crear("upload", HILOS, COLA, virtuales),
+                HILOS + COLA, new SimpleMeterRegistry());
+        LocalPhotoStore store = new LocalPhotoStore(raiz, bulkhead);
+        String nombre = virtuales ? "virtuales" : "boundedElastic";
+        try {
+            IntFunction<Mono<Void>> subida = i -> store.put("foto-" + (i % FOTOS_DISTINTAS) + ".jpg",
+                    contenido(tamanoKb, retardoMs));
+            IntFunction<Mono<Void>> descarga = i -> store.get("foto-" + (i % FOTOS_DISTINTAS) + ".jpg")
+                    .doOnNext(DataBufferUtils::release)
+                    .then();
+
+            // calentamiento, y de paso deja creadas las fotos que luego se descargan
+            correr(subida, concurrencia, FOTOS_DISTINTAS);
+            correr(descarga, concurrencia, FOTOS_DISTINTAS);
+
+            imprimir(nombre, "subida", correr(subida, concurrencia, operaciones));
+            imprimir(nombre, "descarga", correr(descarga, concurrencia, operaciones));
+        } finally {
+            bulkhead.dispose();
+            try (Stream<Path> rutas = Files.walk(raiz)) {
+                rutas.sorted(Comparator.reverseOrder()).forEach(ruta -> ruta.toFile().delete());
+            }
+        }
+    }
+
+    private static Flux<DataBuffer> contenido(int tamanoKb, int retardoMs) {
+        Flux<DataBuffer> trozos = Flux.range(0, Math.max(1, tamanoKb * 1024 / TAMANO_TROZO))
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(ByteBuffer.wrap(TROZO)));
+        return retardoMs > 0 ? trozos.delayElements(Duration.ofMillis(retardoMs)) : trozos;
+    }
+
+    private static Resultado correr(IntFunction<Mono<Void>> operacion, int concurrencia, int operaciones) {
+        long[] latencias = new long[operaciones];
+        AtomicInteger errores = new AtomicInteger();
+        long inicio = System.nanoTime();
+        Flux.range(0, operaciones)
+                .flatMap(i -> Mono.defer(() -> {
+                            long comienzo = System.nanoTime();
+                            return operacion.apply(i)
+                                    .doOnTerminate(() -> latencias[i] = System.nanoTime() - comienzo);
+                        })
+                        .onErrorResume(e -> {
+                            errores.incrementAndGet();
+                            return Mono.empty();
+                        }), concurrencia)
+                .blockLast();
+        long total = System.nanoTime() - inicio;
+        Arrays.sort(latencias);
+        return new Resultado(operaciones * 1e9 / total, percentil(latencias, 0.50), percentil(latencias, 0.99),
+                errores.get());
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        return ordenadas[(int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1)] / 1e6;
+    }
+
+    private static void imprimir(String scheduler, String operacion, Resultado r) {
+        System.out.printf("%-16s %-10s %10.1f %10.2f %10.2f %9d%n", scheduler, operacion, r.opsPorSegundo(),
+                r.p50(), r.p99(), r.errores());
+    }
+
+    private static int argumento(String[] args, int posicion, int defecto) {
+        return args.length > posicion ? Integer.parseInt(args[posicion]) : defecto;
+    }
+
+    private record Resultado(double opsPorSegundo, double p50, double p99, int errores) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.spring.webflux.app.models.lectura;
+
+import com.spring.webflux.app.models.documents.Producto;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+// coste de mapear los documentos de la coleccion productos con el MappingMongoConverter de
+// spring data: al JavaBean Producto (constructor vacio + setters) o al record ProductoLectura
+// (constructor canonico), solo el mapeo y con la transformacion del listado en mayusculas
+// (setNombre sobre el bean, conNombreEnMayusculas que copia el record).
+// Todo corre en el hilo del main: cpu y bytes reservados del hilo son los del mapeo.
+// Uso: gradle benchmarkLectura -Pdocumentos=10000 -Pvueltas=50
+public class BenchmarkLectura {
+
+    private static final com.sun.management.ThreadMXBean hilo =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        int documentos = argumento(args, 0, 10000);
+        int vueltas = argumento(args, 1, 50);
+
+        MongoMappingContext contexto = new MongoMappingContext();
+        contexto.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, contexto);
+        converter.afterPropertiesSet();
+        List<Document> coleccion = coleccion(documentos);
+
+        Function<Document, Object> bean = documento -> converter.read(Producto.class, documento);
+        Function<Document, Object> beanMayusculas = documento -> {
+            Producto producto = converter.read(Producto.class, documento);
+            producto.setNombre(producto.getNombre().toUpperCase());
+            return producto;
+        };
+        Function<Document, Object> record = documento -> converter.read(ProductoLectura.class, documento);
+        Function<Document, Object> recordMayusculas = documento ->
+                converter.read(ProductoLectura.class, documento).conNombreEnMayusculas();
+
+        System.out.println("JVM " + Runtime.version() + ", " + documentos + " documentos, " + vueltas + " vueltas");
+        System.out.printf("%-20s %12s %14s%n", "modelo", "ns/documento", "bytes/documento");
+        medir("bean", bean, coleccion, vueltas);
+        medir("record", record, coleccion, vueltas);
+        medir("bean + mayusculas", beanMayusculas, coleccion, vueltas);
+        medir("record + mayusculas", recordMayusculas, coleccion, vueltas);
+    }
+
+    private static void medir(String modelo, Function<Document, Object> mapeo, List<Document> coleccion,
+                              int vueltas) {
+        // calentamiento para que el jit compile el camino antes de medir
+        recorrer(mapeo, coleccion, Math.max(1, vueltas / 2));
+        long id = Thread.currentThread().getId();
+        long cpuInicial = hilo.getCurrentThreadCpuTime();
+        long reservadosInicial = hilo.getThreadAllocatedBytes(id);
+        long mapeados = recorrer(mapeo, coleccion, vueltas);
+        long cpu = hilo.getCurrentThreadCpuTime() - cpuInicial;
+        long reservados = hilo.getThreadAllocatedBytes(id) - reservadosInicial;
+        System.out.printf("%-20s %12.1f %14.1f%n", modelo, (double) cpu / mapeados, (double) reservados / mapeados);
+    }
+
+    // el hash de los resultados evita que el jit descarte el mapeo por no usarse
+    private static long recorrer(Function<Document, Object> mapeo, List<Document> coleccion, int vueltas) {
+        long mapeados = 0;
+        int hash = 0;
+        for (int v = 0; v < vueltas; v++) {
+            for (Document documento : coleccion) {
+                hash += System.identityHashCode(mapeo.apply(documento));
+                mapeados++;
+            }
+        }
+        if (hash == 42) {
+            System.out.println();
+        }
+        return mapeados;
+    }
+
+    // documentos con la forma que guarda ProductoDao: categoria embebida y fecha de alta
+    private static List<Document> coleccion(int documentos) {
+        List<Document> coleccion = new ArrayList<>(documentos);
+        for (int i = 0; i < documentos; i++) {
+            coleccion.add(new Document("_id", new ObjectId())
+                    .append("nombre", "Producto de prueba " + i)
+                    .append("precio", 10.0 + i)
+                    .append("createAt", new Date())
+                    .append("categoria", new Document("_id", new ObjectId().toHexString())
+                            .append("nombre", "Categoria " + i % 10))
+                    .append("foto", i + "-foto.jpg")
+                    .append("_class", Producto.class.getName()));
+        }
+        return coleccion;
+    }
+
+    private static int argumento(String[] args, int posicion, int defecto) {
+        return args.length > posicion ? Integer.parseInt(args[posicion]) : defecto;
+    }
+}
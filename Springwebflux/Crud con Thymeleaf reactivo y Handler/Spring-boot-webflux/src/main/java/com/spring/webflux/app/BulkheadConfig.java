@@ -0,0 +1,28 @@
+package com.spring.webflux.app;
+
+import com.spring.webflux.app.bulkhead.Bulkhead;
+import com.spring.webflux.app.bulkhead.SchedulersBloqueantes;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BulkheadConfig {
+
+    @Value("${config.bulkhead.upload.hilos:10}")
+    private int hilosUpload;
+
+    @Value("${config.bulkhead.upload.cola:100}")
+    private int colaUpload;
+
+    @Value("${config.bulkhead.hilos-virtuales:false}")
+    private boolean hilosVirtuales;
+
+    @Bean(destroyMethod = "dispose")
+    public Bulkhead uploadBulkhead(MeterRegistry registry){
+        return new Bulkhead("upload",
+                SchedulersBloqueantes.crear("upload", hilosUpload, colaUpload, hilosVirtuales),
+                hilosUpload + colaUpload, registry);
+    }
+}
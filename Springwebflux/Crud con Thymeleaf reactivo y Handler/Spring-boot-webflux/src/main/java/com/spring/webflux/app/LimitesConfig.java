@@ -0,0 +1,57 @@
+package com.spring.webflux.app;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import com.spring.webflux.app.filter.LimitadorConcurrencia;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class LimitesConfig {
+
+    @Value("${config.limites.concurrencia.inicial:64}")
+    private int inicial;
+
+    @Value("${config.limites.concurrencia.minima:8}")
+    private int minima;
+
+    @Value("${config.limites.concurrencia.maxima:512}")
+    private int maxima;
+
+    @Value("${config.limites.concurrencia.latencia-objetivo:50ms}")
+    private Duration latenciaObjetivo;
+
+    @Value("${config.limites.concurrencia.factor-reduccion:0.9}")
+    private double factorReduccion;
+
+    @Value("${config.limites.concurrencia.intervalo-reduccion:100ms}")
+    private Duration intervaloReduccion;
+
+    @Bean
+    public LimitadorConcurrencia limitadorConcurrencia(){
+        return new LimitadorConcurrencia(inicial, minima, maxima, latenciaObjetivo.toNanos(),
+                factorReduccion, intervaloReduccion.toNanos());
+    }
+
+    // el limitador aprende de la latencia real de cada comando que llega a mongo
+    @Bean
+    public MongoClientSettingsBuilderCustomizer latenciaMongoCustomizer(LimitadorConcurrencia limitador){
+        return builder -> builder.addCommandListener(new CommandListener() {
+            @Override
+            public void commandSucceeded(CommandSucceededEvent event) {
+                limitador.registrarLatencia(event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+
+            @Override
+            public void commandFailed(CommandFailedEvent event) {
+                limitador.registrarLatencia(event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package com.spring.webflux.app;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.ReactorResourceFactory;
+import reactor.netty.resources.LoopResources;
+
+import java.util.regex.Pattern;
+
+@Configuration
+@Profile("prod")
+public class NettyServerConfig {
+
+    private static final Pattern ID_MONGO = Pattern.compile("/[0-9a-fA-F]{24}");
+
+    private static final Pattern FOTO = Pattern.compile("/uploads/img/[^/?]+");
+
+    @Value("${config.netty.select-threads:1}")
+    private int selectThreads;
+
+    // 0 = un hilo de event loop por nucleo disponible
+    @Value("${config.netty.worker-threads:0}")
+    private int workerThreads;
+
+    @Value("${config.netty.h2-max-concurrent-streams:1000}")
+    private long maxConcurrentStreams;
+
+    @Bean
+    public ReactorResourceFactory reactorResourceFactory(){
+        int workers = workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+
+        ReactorResourceFactory factory = new ReactorResourceFactory();
+        factory.setUseGlobalResources(false);
+        factory.setLoopResources(LoopResources.create("http", selectThreads, workers, true));
+        return factory;
+    }
+
+    @Bean
+    public NettyServerCustomizer nettyServerCustomizer(){
+        return httpServer -> httpServer
+                .http2Settings(settings -> settings.maxConcurrentStreams(maxConcurrentStreams))
+                // metricas de conexiones, streams h2 y latencia por uri (reactor.netty.http.server.*)
+                .metrics(true, NettyServerConfig::uriMetrica);
+    }
+
+    // los ids de mongo y los nombres de foto ({uuid}-{nombre}) se agrupan para no crear una
+    // serie de metricas por producto ni por foto
+    private static String uriMetrica(String uri){
+        return ID_MONGO.matcher(FOTO.matcher(uri).replaceAll("/uploads/img/{foto}")).replaceAll("/{id}");
+    }
+}
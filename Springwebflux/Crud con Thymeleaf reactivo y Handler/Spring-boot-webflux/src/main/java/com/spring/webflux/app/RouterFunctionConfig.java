@@ -1,5 +1,7 @@
 package com.spring.webflux.app;
 
+import com.spring.webflux.app.handler.EstadisticaHandler;
+import com.spring.webflux.app.handler.JobHandler;
 import com.spring.webflux.app.handler.ProductoHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,6 +26,26 @@ public class RouterFunctionConfig {
                 .andRoute(RequestPredicates.DELETE("/api/v2/productos/{id}"),handler::eliminar)
                 .andRoute(RequestPredicates.POST("/api/v2/productos/upload/{id}"), handler::upload)
                 .andRoute(RequestPredicates.POST("/api/v2/productos/crear"), handler::crearConFoto)
+                .andRoute(RequestPredicates.GET("/api/v2/productos/categorias/{id}"), handler::verCategoria)
+                .andRoute(RequestPredicates.GET("/api/v2/productos/categorias/{id}/productos"),
+                        handler::listarPorCategoria)
                 ;
     }
+
+    @Bean
+    public RouterFunction<ServerResponse> estadisticas(EstadisticaHandler handler){
+        return RouterFunctions.route(RequestPredicates.GET("/api/v2/productos/estadisticas/categorias"),
+                        handler::porCategoria)
+                .andRoute(RequestPredicates.GET("/api/v2/productos/estadisticas/dias"), handler::porDia)
+                .andRoute(RequestPredicates.GET("/api/v2/productos/estadisticas/resumen"), handler::resumen)
+                .andRoute(RequestPredicates.GET("/api/v2/productos/estadisticas/resumen/{categoria}"),
+                        handler::resumenCategoria);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> jobs(JobHandler handler){
+        return RouterFunctions.route(RequestPredicates.POST("/api/v2/jobs"), handler::crear)
+                .andRoute(RequestPredicates.GET("/api/v2/jobs/{id}"), handler::ver)
+                .andRoute(RequestPredicates.GET("/api/v2/jobs/{id}/progreso"), handler::progreso);
+    }
 }
@@ -0,0 +1,108 @@
+package com.spring.webflux.app.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// aisla un tipo de trabajo bloqueante o pesado en su propio scheduler acotado, asi una
+// rafaga de uploads no le quita hilos del event loop al resto de la api
+public class Bulkhead {
+
+    private final String nombre;
+
+    private final Scheduler scheduler;
+
+    // tope de tareas en cola + ejecucion, se aplica aqui para que valga igual
+    // con boundedElastic que con hilos virtuales (que no tienen cola propia)
+    private final int maxEnCurso;
+
+    private final Timer latencia;
+
+    private final Counter rechazos;
+
+    private final AtomicInteger enCurso = new AtomicInteger();
+
+    public Bulkhead(String nombre, Scheduler scheduler, int maxEnCurso, MeterRegistry registry) {
+        this.nombre = nombre;
+        this.scheduler = scheduler;
+        this.maxEnCurso = maxEnCurso;
+        this.latencia = Timer.builder("bulkhead.latencia")
+                .description("Tiempo en cola mas ejecucion de las tareas del bulkhead")
+                .tag("bulkhead", nombre)
+                .publishPercentileHistogram()
+                .register(registry);
+        this.rechazos = Counter.builder("bulkhead.rechazos")
+                .description("Tareas rechazadas porque la cola del bulkhead estaba llena")
+                .tag("bulkhead", nombre)
+                .register(registry);
+        Gauge.builder("bulkhead.en.curso", enCurso, AtomicInteger::get)
+                .tag("bulkhead", nombre)
+                .register(registry);
+    }
+
+    public <T> Mono<T> ejecutar(Mono<T> trabajo) {
+        return Mono.defer(() -> {
+            if (!reservar()) {
+                return Mono.error(saturado());
+            }
+            long inicio = System.nanoTime();
+            return trabajo.subscribeOn(scheduler)
+                    .doOnError(RejectedExecutionException.class, e -> rechazos.increment())
+                    .doFinally(signal -> liberar(inicio));
+        });
+    }
+
+    public <T> Mono<T> ejecutar(Callable<T> bloqueante) {
+        return ejecutar(Mono.fromCallable(bloqueante));
+    }
+
+    // para lecturas en streaming (Flux.generate, Files.walk, ...): el flujo ocupa un lugar
+    // hasta que termina y, como subscribeOn tambien mueve los request, cada elemento se
+    // produce en el scheduler del bulkhead y no en el event loop
+    public <T> Flux<T> ejecutarFlujo(Flux<T> trabajo) {
+        return Flux.defer(() -> {
+            if (!reservar()) {
+                return Flux.error(saturado());
+            }
+            long inicio = System.nanoTime();
+            return trabajo.subscribeOn(scheduler)
+                    .doOnError(RejectedExecutionException.class, e -> rechazos.increment())
+                    .doFinally(signal -> liberar(inicio));
+        });
+    }
+
+    private boolean reservar() {
+        if (enCurso.incrementAndGet() > maxEnCurso) {
+            enCurso.decrementAndGet();
+            rechazos.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void liberar(long inicio) {
+        enCurso.decrementAndGet();
+        latencia.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
+
+    private RejectedExecutionException saturado() {
+        return new RejectedExecutionException("Bulkhead " + nombre + " saturado");
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void dispose() {
+        scheduler.dispose();
+    }
+}
@@ -1,17 +1,19 @@
 package com.spring.webflux.app.controllers;
 
 
+import com.spring.webflux.app.fotos.PhotoStore;
 import com.spring.webflux.app.models.documents.Categoria;
 import com.spring.webflux.app.models.documents.Producto;
+import com.spring.webflux.app.models.dto.ProductoResumen;
 import com.spring.webflux.app.models.services.ProductoService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Controller;
@@ -23,10 +25,6 @@ import org.thymeleaf.spring6.context.webflux.ReactiveDataDriverContextVariable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.io.File;
-import java.net.MalformedURLException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.Date;
 import java.util.UUID;
@@ -37,8 +35,8 @@ public class ProductoController {
     @Autowired
     private ProductoService productoService;
 
-    @Value("${config.uploads.path}")
-    private String path;
+    @Autowired
+    private PhotoStore photoStore;
 
     private static final Logger log = LoggerFactory.getLogger(ProductoController.class);
 
@@ -48,19 +46,16 @@ public class ProductoController {
     }
 
     @GetMapping("/uploads/img/{nombreFoto:.+}")
-    public Mono<ResponseEntity<Resource>> verFoto(@PathVariable String nombreFoto) throws MalformedURLException {
-
-        Path ruta = Paths.get(path).resolve(nombreFoto).toAbsolutePath();
-
-        Resource imagen = new UrlResource(ruta.toUri());
-
-        return Mono.just(
-
-                ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + imagen.getFilename() + "\"" )
-                        .body(imagen)
-
-        );
+    public Mono<ResponseEntity<Flux<DataBuffer>>> verFoto(@PathVariable String nombreFoto) {
+
+        return photoStore.head(nombreFoto)
+                .map(foto -> ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION,
+                                "attachment; filename=\"" + foto.getNombre() + "\"" )
+                        .contentType(MediaTypeFactory.getMediaType(foto.getNombre())
+                                .orElse(MediaType.APPLICATION_OCTET_STREAM))
+                        .contentLength(foto.getTamano())
+                        .body(photoStore.get(foto.getNombre())))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/ver/{id}")
@@ -85,14 +80,9 @@ public class ProductoController {
     @GetMapping({"/listar","/"})
     public  Mono<String> listar (Model model){
 
-        Flux<Producto> productos = productoService.findAllConNombreUpperCase()
-                .map(producto -> {
-
-                    producto.setNombre(producto.getNombre().toUpperCase());
-                    return producto;
-                });
-
-        productos.subscribe(producto -> log.info(producto.getNombre()));
+        // el log va en el mismo flujo que pinta la vista: un subscribe aparte lanzaria la agregacion dos veces
+        Flux<ProductoResumen> productos = productoService.findAllConNombreUpperCase()
+                .doOnNext(producto -> log.info(producto.nombre()));
 
         model.addAttribute("productos", productos); // al pasar productos por aqui automaticamente se
         // va suscribir
@@ -157,6 +147,8 @@ public class ProductoController {
             status.setComplete();
             Mono<Categoria> categoria = productoService.findCategoriaById(producto.getCategoria().getId());
 
+           String fotoAnterior = producto.getFoto();
+
            return categoria.flatMap(c -> {
 
                if(producto.getCreateAt() == null){
@@ -180,7 +172,8 @@ public class ProductoController {
 
                     .flatMap(p -> {
                         if(!file.filename().isEmpty()){
-                            return file.transferTo(new File(path + p.getFoto()));
+                            return photoStore.put(p.getFoto(), file.content())
+                                    .then(productoService.deleteFoto(fotoAnterior));
                         }
                         return  Mono.empty();
                     })
@@ -207,9 +200,10 @@ public class ProductoController {
     @GetMapping("/listar-datadriver")
     public  String listarDataDriver(Model model){
 
-        Flux<Producto> productos = productoService.findAllConNombreUpperCase()
-                .delayElements(Duration.ofSeconds(1));
-        productos.subscribe(producto -> log.info(producto.getNombre()));
+        // como en listar, el log va en el flujo que consume la vista y no en una segunda suscripcion
+        Flux<ProductoResumen> productos = productoService.findAllConNombreUpperCase()
+                .delayElements(Duration.ofSeconds(1))
+                .doOnNext(producto -> log.info(producto.nombre()));
         model.addAttribute("productos",new ReactiveDataDriverContextVariable(productos,
                 1) ); // al pasar productos por aqui automaticamente se
         // va suscribir
@@ -220,7 +214,7 @@ public class ProductoController {
     @GetMapping("/listar-full")
     public  String listarFull (Model model){
 
-        Flux<Producto> productos = productoService.findAllConNombreUpperCaseRepeat();
+        Flux<ProductoResumen> productos = productoService.findAllConNombreUpperCaseRepeat();
 
         model.addAttribute("productos", productos); // al pasar productos por aqui automaticamente se
         // va suscribir
@@ -233,7 +227,7 @@ public class ProductoController {
     @GetMapping("/listar-chunked")
     public  String listarChuncked (Model model){
 
-        Flux<Producto> productos = productoService.findAllConNombreUpperCaseRepeat();
+        Flux<ProductoResumen> productos = productoService.findAllCompactoRepeat();
 
         model.addAttribute("productos", productos); // al pasar productos por aqui automaticamente se
         // va suscribir
@@ -0,0 +1,127 @@
+package com.spring.webflux.app.filter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LimiteSolicitudesFilter implements WebFilter {
+
+    private static final long INTERVALO_LIMPIEZA = TimeUnit.SECONDS.toNanos(10);
+
+    @Autowired
+    private LimitadorConcurrencia limitador;
+
+    @Value("${config.limites.rutas:/api/}")
+    private String prefijo;
+
+    @Value("${config.limites.rps-por-cliente:50}")
+    private double rpsPorCliente;
+
+    @Value("${config.limites.rafaga:100}")
+    private double rafaga;
+
+    @Value("${config.limites.max-clientes:10000}")
+    private int maxClientes;
+
+    // id del cliente original que agrega el gateway; sin ella todo lo que llega por el gateway
+    // compartiria el bucket de la ip del gateway
+    @Value("${config.limites.cabecera-cliente:X-Cliente-Id}")
+    private String cabeceraCliente;
+
+    // la cabecera solo se cree si viene de uno de estos pares (direcciones o prefijos como
+    // "10.0."), si no cualquiera podria esquivar el limite mandando un id distinto cada vez
+    @Value("${config.limites.proxies-confiables:127.0.0.1,0:0:0:0:0:0:0:1}")
+    private List<String> proxiesConfiables;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong ultimaLimpieza = new AtomicLong(System.nanoTime());
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!request.getPath().value().startsWith(prefijo)) {
+            return chain.filter(exchange);
+        }
+
+        limpiarBuckets();
+        TokenBucket bucket = buckets.computeIfAbsent(cliente(request),
+                k -> new TokenBucket(rpsPorCliente, rafaga));
+        if (!bucket.intentarConsumir()) {
+            return rechazar(exchange, HttpStatus.TOO_MANY_REQUESTS);
+        }
+        if (!limitador.intentarAdquirir()) {
+            return rechazar(exchange, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        // el lugar se devuelve al escribir las cabeceras: un export csv o un stream sse no
+        // ocupan la concurrencia mientras dura el cuerpo. doFinally cubre lo que nunca escribe
+        AtomicBoolean liberado = new AtomicBoolean();
+        Runnable liberar = () -> {
+            if (liberado.compareAndSet(false, true)) {
+                limitador.liberar();
+            }
+        };
+        exchange.getResponse().beforeCommit(() -> Mono.fromRunnable(liberar));
+        return chain.filter(exchange)
+                .doFinally(signal -> liberar.run());
+    }
+
+    private String cliente(ServerHttpRequest request) {
+        InetSocketAddress remoto = request.getRemoteAddress();
+        String direccion = remoto != null && remoto.getAddress() != null
+                ? remoto.getAddress().getHostAddress() : "desconocido";
+        if (!cabeceraCliente.isEmpty() && confiable(direccion)) {
+            String id = request.getHeaders().getFirst(cabeceraCliente);
+            if (id != null && !id.isBlank()) {
+                return id;
+            }
+        }
+        return direccion;
+    }
+
+    private boolean confiable(String direccion) {
+        for (String proxy : proxiesConfiables) {
+            if (!proxy.isBlank() && direccion.startsWith(proxy.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // se rechaza sin tocar mongo ni leer el cuerpo, la respuesta es inmediata
+    private Mono<Void> rechazar(ServerWebExchange exchange, HttpStatus status) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        return response.setComplete();
+    }
+
+    private void limpiarBuckets() {
+        long ahora = System.nanoTime();
+        long ultima = ultimaLimpieza.get();
+        if (buckets.size() > maxClientes && ahora - ultima > INTERVALO_LIMPIEZA
+                && ultimaLimpieza.compareAndSet(ultima, ahora)) {
+            buckets.values().removeIf(TokenBucket::lleno);
+        }
+    }
+}
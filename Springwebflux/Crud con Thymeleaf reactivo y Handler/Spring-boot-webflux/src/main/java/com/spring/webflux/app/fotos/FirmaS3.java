@@ -0,0 +1,118 @@
+package com.spring.webflux.app.fotos;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.stream.Collectors;
+
+// firma AWS Signature V4 para peticiones S3. El cuerpo no se firma (UNSIGNED-PAYLOAD)
+// para poder enviarlo en streaming. La query debe llegar ya codificada como la espera S3
+public class FirmaS3 {
+
+    private static final String ALGORITMO = "AWS4-HMAC-SHA256";
+
+    private static final String SIN_FIRMA = "UNSIGNED-PAYLOAD";
+
+    private static final String CABECERAS_FIRMADAS = "host;x-amz-content-sha256;x-amz-date";
+
+    private static final DateTimeFormatter FORMATO_FECHA_HORA = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final String accessKey;
+
+    private final String secretKey;
+
+    private final String region;
+
+    public FirmaS3(String accessKey, String secretKey, String region) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+    }
+
+    public void firmar(HttpMethod metodo, URI uri, HttpHeaders headers) {
+        ZonedDateTime ahora = ZonedDateTime.now(ZoneOffset.UTC);
+        String fechaHora = FORMATO_FECHA_HORA.format(ahora);
+        String fecha = FORMATO_FECHA.format(ahora);
+        String host = host(uri);
+
+        String peticionCanonica = metodo.name() + "\n"
+                + uri.getRawPath() + "\n"
+                + queryCanonica(uri) + "\n"
+                + "host:" + host + "\n"
+                + "x-amz-content-sha256:" + SIN_FIRMA + "\n"
+                + "x-amz-date:" + fechaHora + "\n"
+                + "\n"
+                + CABECERAS_FIRMADAS + "\n"
+                + SIN_FIRMA;
+
+        String alcance = fecha + "/" + region + "/s3/aws4_request";
+        String textoAFirmar = ALGORITMO + "\n" + fechaHora + "\n" + alcance + "\n" + hex(sha256(peticionCanonica));
+
+        byte[] clave = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), fecha);
+        clave = hmac(clave, region);
+        clave = hmac(clave, "s3");
+        clave = hmac(clave, "aws4_request");
+        String firma = hex(hmac(clave, textoAFirmar));
+
+        headers.set("x-amz-date", fechaHora);
+        headers.set("x-amz-content-sha256", SIN_FIRMA);
+        headers.set(HttpHeaders.AUTHORIZATION, ALGORITMO + " Credential=" + accessKey + "/" + alcance
+                + ", SignedHeaders=" + CABECERAS_FIRMADAS + ", Signature=" + firma);
+    }
+
+    // parametros ordenados y siempre con '=', aunque no tengan valor
+    private static String queryCanonica(URI uri) {
+        String query = uri.getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return "";
+        }
+        return Arrays.stream(query.split("&"))
+                .map(parametro -> parametro.contains("=") ? parametro : parametro + "=")
+                .sorted()
+                .collect(Collectors.joining("&"));
+    }
+
+    // igual que la cabecera Host que envia el cliente: el puerto solo si no es el por defecto
+    private static String host(URI uri) {
+        int puerto = uri.getPort();
+        boolean porDefecto = puerto == -1
+                || ("http".equals(uri.getScheme()) && puerto == 80)
+                || ("https".equals(uri.getScheme()) && puerto == 443);
+        return porDefecto ? uri.getHost() : uri.getHost() + ":" + puerto;
+    }
+
+    private static byte[] sha256(String texto) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(texto.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] clave, String texto) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(clave, "HmacSHA256"));
+            return mac.doFinal(texto.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+}
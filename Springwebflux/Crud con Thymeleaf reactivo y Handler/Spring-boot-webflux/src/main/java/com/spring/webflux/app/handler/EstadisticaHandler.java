@@ -0,0 +1,83 @@
+package com.spring.webflux.app.handler;
+
+import com.spring.webflux.app.models.dto.EstadisticaCategoria;
+import com.spring.webflux.app.models.dto.ProductosPorDia;
+import com.spring.webflux.app.models.services.EstadisticaService;
+import com.spring.webflux.app.resumen.ResumenCatalogo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+@Component
+public class EstadisticaHandler {
+
+    @Autowired
+    private EstadisticaService estadisticaService;
+
+    @Autowired
+    private ResumenCatalogo resumenCatalogo;
+
+    // mismo tiempo que la cache del servicio: antes de eso el dashboard recibiria lo mismo
+    @Value("${config.estadisticas.cache:PT30S}")
+    private Duration cache;
+
+    public Mono<ServerResponse> porCategoria(ServerRequest serverRequest){
+
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.maxAge(cache))
+                .body(estadisticaService.porCategoria(), EstadisticaCategoria.class);
+    }
+
+    // resumen en memoria, sin consultas a Mongo
+    public Mono<ServerResponse> resumen(ServerRequest serverRequest){
+
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(resumenCatalogo.todas());
+    }
+
+    public Mono<ServerResponse> resumenCategoria(ServerRequest serverRequest){
+        String categoria = serverRequest.pathVariable("categoria");
+
+        return resumenCatalogo.categoria(categoria)
+                .map(resumen -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(resumen))
+                .orElseGet(() -> ServerResponse.notFound().build());
+    }
+
+    // ?desde=2024-01-01&hasta=2024-01-31, ambos opcionales
+    public Mono<ServerResponse> porDia(ServerRequest serverRequest){
+        LocalDate desde;
+        LocalDate hasta;
+        try {
+            desde = serverRequest.queryParam("desde").map(LocalDate::parse).orElse(null);
+            hasta = serverRequest.queryParam("hasta").map(LocalDate::parse).orElse(null);
+        } catch (DateTimeParseException e) {
+            return ServerResponse.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(List.of("Fecha invalida, el formato es yyyy-MM-dd: " + e.getParsedString()));
+        }
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            return ServerResponse.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(List.of("Rango invalido: desde (" + desde + ") es posterior a hasta (" + hasta + ")"));
+        }
+
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.maxAge(cache))
+                .body(estadisticaService.productosPorDia(desde, hasta), ProductosPorDia.class);
+    }
+}
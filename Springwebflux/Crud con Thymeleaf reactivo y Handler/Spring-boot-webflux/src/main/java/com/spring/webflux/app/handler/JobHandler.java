@@ -0,0 +1,54 @@
+package com.spring.webflux.app.handler;
+
+import com.spring.webflux.app.jobs.GestorJobs;
+import com.spring.webflux.app.models.documents.Job;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+
+@Component
+public class JobHandler {
+
+    @Autowired
+    private GestorJobs gestorJobs;
+
+    // body: { "tipo": "verificar-fotos", "parametros": { ... } }
+    public Mono<ServerResponse> crear(ServerRequest serverRequest){
+
+        return serverRequest.bodyToMono(Job.class)
+                .flatMap(solicitud -> gestorJobs.crear(solicitud.getTipo(), solicitud.getParametros()))
+                .flatMap(job -> ServerResponse.accepted()
+                        .location(URI.create("/api/v2/jobs/".concat(job.getId())))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(BodyInserters.fromValue(job)))
+                .onErrorResume(IllegalArgumentException.class, e -> ServerResponse.badRequest()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(BodyInserters.fromValue(List.of(e.getMessage()))));
+    }
+
+    public Mono<ServerResponse> ver(ServerRequest serverRequest){
+        String id = serverRequest.pathVariable("id");
+
+        return gestorJobs.findById(id).flatMap(job -> ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(job)))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    // Server-Sent Events con el estado del job en cada avance, se cierra al terminar
+    public Mono<ServerResponse> progreso(ServerRequest serverRequest){
+        String id = serverRequest.pathVariable("id");
+
+        return gestorJobs.findById(id).flatMap(job -> ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(job.isTerminado() ? Mono.just(job) : gestorJobs.progreso(id), Job.class))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+}
@@ -1,10 +1,13 @@
 package com.spring.webflux.app.handler;
 
+import com.spring.webflux.app.JacksonConfig;
+import com.spring.webflux.app.fotos.PhotoStore;
 import com.spring.webflux.app.models.documents.Categoria;
 import com.spring.webflux.app.models.documents.Producto;
+import com.spring.webflux.app.models.lectura.ProductoLectura;
 import com.spring.webflux.app.models.services.ProductoService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.http.codec.multipart.FormFieldPart;
@@ -18,10 +21,11 @@ import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.io.File;
 import java.net.URI;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 @Component
 public class ProductoHandler {
@@ -29,17 +33,16 @@ public class ProductoHandler {
     @Autowired
     private ProductoService productoService;
 
-    @Value("${config.uploads.path}")
-    private String path;
-
+    @Autowired
+    private PhotoStore photoStore;
 
     @Autowired
     private Validator validator;
     public Mono<ServerResponse> listar(ServerRequest serverRequest){
 
         return ServerResponse.ok()
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(productoService.findAll(), Producto.class);
+                .contentType(tipoRespuesta(serverRequest, JacksonConfig.APPLICATION_STREAM_SMILE))
+                .body(productoService.findAllLectura(), ProductoLectura.class);
     }
 
 
@@ -47,12 +50,43 @@ public class ProductoHandler {
 
         String id = serverRequest.pathVariable("id");
         return productoService.findById(id).flatMap(p -> ServerResponse.ok()
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromObject(p)))
+                .contentType(tipoRespuesta(serverRequest, JacksonConfig.APPLICATION_SMILE))
+                .body(BodyInserters.fromValue(p)))
                 .switchIfEmpty(ServerResponse.notFound().build());
     }
 
 
+    public Mono<ServerResponse> verCategoria(ServerRequest serverRequest){
+
+        String id = serverRequest.pathVariable("id");
+        return productoService.findCategoriaById(id).flatMap(c -> ServerResponse.ok()
+                .contentType(tipoRespuesta(serverRequest, JacksonConfig.APPLICATION_SMILE))
+                .body(BodyInserters.fromValue(c)))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    // ?limite=N, por defecto 20 y como mucho 100
+    public Mono<ServerResponse> listarPorCategoria(ServerRequest serverRequest){
+
+        String id = serverRequest.pathVariable("id");
+        int limite;
+        try {
+            limite = serverRequest.queryParam("limite")
+                    .map(Integer::parseInt)
+                    .map(l -> Math.max(1, Math.min(l, 100)))
+                    .orElse(20);
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(BodyInserters.fromValue(List.of("limite debe ser un numero entero: "
+                            + serverRequest.queryParam("limite").orElse(""))));
+        }
+        return ServerResponse.ok()
+                .contentType(tipoRespuesta(serverRequest, JacksonConfig.APPLICATION_STREAM_SMILE))
+                .body(productoService.findByCategoriaId(id, limite), Producto.class);
+    }
+
+
     public Mono<ServerResponse> crear(ServerRequest serverRequest){
 
         return serverRequest.bodyToMono(Producto.class)
@@ -64,15 +98,17 @@ public class ProductoHandler {
                                 .map(fieldError -> "El campo: " + fieldError.getField() + " " +
                                        fieldError.getDefaultMessage() )
                                 .collectList()
-                                .flatMap(list -> ServerResponse.badRequest().body(BodyInserters.fromObject(list)));
+                                .flatMap(list -> ServerResponse.badRequest()
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .body(BodyInserters.fromValue(list)));
                     }else{
                         if(p.getCreateAt()== null){
                             p.setCreateAt(new Date());
                         }
                         return   productoService.save(p).
                                 flatMap(pdb -> ServerResponse.created(URI.create("/api/v2/productos/".concat(pdb.getId())))
-                                .contentType(MediaType.APPLICATION_JSON)
-                                .body(BodyInserters.fromObject(pdb))
+                                .contentType(tipoRespuesta(serverRequest, JacksonConfig.APPLICATION_SMILE))
+                                .body(BodyInserters.fromValue(pdb))
                         );
                     }
                 });
@@ -90,7 +126,7 @@ public class ProductoHandler {
             db.setCategoria(req.getCategoria());
             return db;
         }).flatMap(p -> ServerResponse.created(URI.create("/api/v2/productos/".concat(p.getId())))
-                .contentType(MediaType.APPLICATION_JSON)
+                .contentType(tipoRespuesta(serverRequest, JacksonConfig.APPLICATION_SMILE))
                 .body(productoService.save(p), Producto.class)
         ).switchIfEmpty(ServerResponse.notFound().build());
     }
@@ -113,17 +149,21 @@ public class ProductoHandler {
                 .cast(FilePart.class)
                 .flatMap(file -> productoService.findById(id)
                         .flatMap( p -> {
+                    String fotoAnterior = p.getFoto();
                     p.setFoto(UUID.randomUUID().toString() + " " +file.filename()
                             .replace(" ", "-")
                             .replace(":", "")
                             .replace("\\", ""));
 
-                    return file.transferTo(new File(path + p.getFoto()))
-                            .then(productoService.save(p));
+                    // la foto anterior se borra solo cuando el producto ya apunta a la nueva
+                    return photoStore.put(p.getFoto(), file.content())
+                            .then(productoService.save(p))
+                            .flatMap(guardado -> productoService.deleteFoto(fotoAnterior).thenReturn(guardado));
                 })).flatMap(p -> ServerResponse.created(URI.create("/api/v2/productos/".concat(p.getId())))
                         .contentType(MediaType.APPLICATION_JSON)
-                        .body(BodyInserters.fromObject(p)))
-                .switchIfEmpty(ServerResponse.notFound().build());
+                        .body(BodyInserters.fromValue(p)))
+                .switchIfEmpty(ServerResponse.notFound().build())
+                .onErrorResume(RejectedExecutionException.class, e -> uploadsSaturados());
     }
 
 
@@ -153,10 +193,26 @@ public class ProductoHandler {
                                     .replace(":", "")
                                     .replace("\\", ""));
                             p.setCreateAt(new Date());
-                            return file.transferTo(new File(path + p.getFoto()))
+                            return photoStore.put(p.getFoto(), file.content())
                                     .then(productoService.save(p));
                         })).flatMap(p -> ServerResponse.created(URI.create("/api/v2/productos/".concat(p.getId())))
                         .contentType(MediaType.APPLICATION_JSON)
-                        .body(BodyInserters.fromObject(p)));
+                        .body(BodyInserters.fromValue(p)))
+                .onErrorResume(RejectedExecutionException.class, e -> uploadsSaturados());
+    }
+
+    // cola del bulkhead llena: mejor un 503 rapido que seguir acumulando archivos en espera
+    private Mono<ServerResponse> uploadsSaturados(){
+        return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .build();
+    }
+
+    // los clientes publicos siguen recibiendo json, solo quien pide smile explicitamente
+    // (el gateway) lo recibe; */* no cuenta como smile
+    private MediaType tipoRespuesta(ServerRequest serverRequest, MediaType binario){
+        boolean aceptaBinario = serverRequest.headers().accept().stream()
+                .anyMatch(binario::equalsTypeAndSubtype);
+        return aceptaBinario ? binario : MediaType.APPLICATION_JSON;
     }
 }
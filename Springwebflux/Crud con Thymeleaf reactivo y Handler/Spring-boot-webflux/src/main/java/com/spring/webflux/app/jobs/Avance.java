@@ -0,0 +1,30 @@
+package com.spring.webflux.app.jobs;
+
+// progreso que va informando una tarea: el checkpoint es lo que necesita para continuar
+// donde se quedo si el job se reanuda
+public class Avance {
+
+    private final long procesados;
+
+    private final Long total;
+
+    private final String checkpoint;
+
+    public Avance(long procesados, Long total, String checkpoint) {
+        this.procesados = procesados;
+        this.total = total;
+        this.checkpoint = checkpoint;
+    }
+
+    public long getProcesados() {
+        return procesados;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+}
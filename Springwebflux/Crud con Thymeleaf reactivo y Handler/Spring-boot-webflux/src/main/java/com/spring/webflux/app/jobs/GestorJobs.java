@@ -0,0 +1,284 @@
+package com.spring.webflux.app.jobs;
+
+import com.spring.webflux.app.bulkhead.SchedulersBloqueantes;
+import com.spring.webflux.app.models.dao.JobDao;
+import com.spring.webflux.app.models.documents.Job;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// ejecuta los jobs fuera de la peticion http. El estado vive en Mongo: cada tipo tiene su cola
+// con su propio limite de concurrencia, los avances se guardan cada pocos segundos como
+// checkpoint y un job que deja de dar latidos (proceso caido) se vuelve a tomar desde su
+// ultimo checkpoint, aqui o en otra instancia
+@Component
+public class GestorJobs {
+
+    private static final Logger log = LoggerFactory.getLogger(GestorJobs.class);
+
+    @Autowired
+    private JobDao dao;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private List<TareaJob> listaTareas;
+
+    @Autowired
+    private Environment entorno;
+
+    @Value("${config.jobs.hilos:4}")
+    private int hilos;
+
+    @Value("${config.jobs.cola:100}")
+    private int cola;
+
+    @Value("${config.jobs.checkpoint:PT2S}")
+    private Duration intervaloCheckpoint;
+
+    @Value("${config.jobs.latido:PT30S}")
+    private Duration latido;
+
+    @Value("${config.jobs.abandono:PT5M}")
+    private Duration abandono;
+
+    @Value("${config.jobs.max-intentos:5}")
+    private int maxIntentos;
+
+    private Map<String, TareaJob> tareas;
+
+    private final Map<String, Sinks.Many<String>> colas = new ConcurrentHashMap<>();
+
+    // ids ya encolados o en ejecucion en esta instancia
+    private final Set<String> encolados = ConcurrentHashMap.newKeySet();
+
+    // ultimo estado de los jobs que corren aqui, para el stream de progreso
+    private final Map<String, Sinks.Many<Job>> progresos = new ConcurrentHashMap<>();
+
+    private final Disposable.Composite consumidores = Disposables.composite();
+
+    private Scheduler scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = SchedulersBloqueantes.crear("jobs", hilos, cola, false);
+        tareas = listaTareas.stream().collect(Collectors.toMap(TareaJob::getTipo, Function.identity()));
+        tareas.keySet().forEach(tipo -> {
+            Sinks.Many<String> pendientes = Sinks.many().unicast().onBackpressureBuffer();
+            int concurrencia = entorno.getProperty("config.jobs.concurrencia." + tipo, Integer.class, 1);
+            colas.put(tipo, pendientes);
+            consumidores.add(pendientes.asFlux()
+                    .flatMap(id -> ejecutar(id).doFinally(senal -> encolados.remove(id)), concurrencia)
+                    .subscribe());
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        consumidores.dispose();
+        scheduler.dispose();
+    }
+
+    public Mono<Job> crear(String tipo, Map<String, String> parametros) {
+        if (!tareas.containsKey(tipo)) {
+            return Mono.error(new IllegalArgumentException("Tipo de job desconocido: " + tipo));
+        }
+        return dao.save(new Job(tipo, parametros))
+                .doOnNext(this::encolar);
+    }
+
+    public Mono<Job> findById(String id) {
+        return dao.findById(id);
+    }
+
+    // con el job corriendo aqui se emite cada avance; si corre en otra instancia (o ya termino)
+    // se consulta Mongo periodicamente hasta que termine. Si el job no existe (o se borra) el
+    // flujo se cierra en vez de seguir consultando para siempre
+    public Flux<Job> progreso(String id) {
+        Sinks.Many<Job> local = progresos.get(id);
+        if (local != null) {
+            return local.asFlux();
+        }
+        return Flux.interval(Duration.ZERO, Duration.ofSeconds(1))
+                .concatMap(tick -> dao.findById(id).map(Optional::of).defaultIfEmpty(Optional.empty()))
+                .takeWhile(Optional::isPresent)
+                .map(Optional::get)
+                .distinctUntilChanged(Job::getActualizado)
+                .takeUntil(Job::isTerminado);
+    }
+
+    // al arrancar y cada cierto tiempo: jobs pendientes y jobs abandonados por un proceso caido
+    @Scheduled(initialDelay = 0, fixedDelayString = "${config.jobs.revision:PT1M}")
+    public Mono<Void> recuperar() {
+        Date limite = Date.from(Instant.now().minus(abandono));
+        return dao.findByEstado(Job.Estado.PENDIENTE)
+                .concatWith(dao.findByEstadoAndActualizadoBefore(Job.Estado.EN_CURSO, limite))
+                .filter(job -> tareas.containsKey(job.getTipo()))
+                .doOnNext(this::encolar)
+                .onErrorResume(e -> {
+                    log.error("No se pudieron recuperar los jobs pendientes", e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void encolar(Job job) {
+        if (encolados.add(job.getId())) {
+            colas.get(job.getTipo()).emitNext(job.getId(), Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+        }
+    }
+
+    private Mono<Void> ejecutar(String id) {
+        return reclamar(id)
+                .flatMap(job -> {
+                    Sinks.Many<Job> progreso = Sinks.many().replay().latest();
+                    progresos.put(id, progreso);
+                    progreso.tryEmitNext(job);
+
+                    AtomicReference<Job> ultimo = new AtomicReference<>(instantanea(job,
+                            new Avance(job.getProcesados(), job.getTotal(), job.getCheckpoint())));
+
+                    Mono<Void> trabajo = tareas.get(job.getTipo()).ejecutar(job)
+                            .map(avance -> instantanea(job, avance))
+                            .doOnNext(copia -> {
+                                ultimo.set(copia);
+                                progreso.tryEmitNext(copia);
+                            })
+                            // a Mongo solo el ultimo avance de cada intervalo
+                            .sample(intervaloCheckpoint)
+                            .concatMap(this::guardarAvance)
+                            .then(Mono.defer(() -> terminar(ultimo.get(), Job.Estado.TERMINADO, null)))
+                            .onErrorResume(e -> terminar(ultimo.get(), Job.Estado.FALLIDO, e.getMessage()))
+                            .doOnNext(progreso::tryEmitNext)
+                            .then();
+
+                    // los latidos mantienen el job como propio aunque la tarea tarde en informar
+                    return Mono.using(() -> Flux.interval(latido, latido)
+                                            .concatMap(tick -> tocar(id))
+                                            .subscribe(),
+                                    latidos -> trabajo,
+                                    Disposable::dispose)
+                            .doFinally(senal -> {
+                                progreso.tryEmitComplete();
+                                progresos.remove(id);
+                            });
+                })
+                .subscribeOn(scheduler)
+                .onErrorResume(e -> {
+                    log.error("Error ejecutando el job " + id, e);
+                    return Mono.empty();
+                });
+    }
+
+    // solo una instancia puede pasar el job a EN_CURSO: la que lo encuentre pendiente o abandonado.
+    // Un job que ya agoto sus intentos (se cae el proceso cada vez que lo ejecuta) no se vuelve
+    // a tomar: se marca como fallido
+    private Mono<Job> reclamar(String id) {
+        Date ahora = new Date();
+        Query query = new Query(disponible(id, ahora).and("intentos").lt(maxIntentos));
+        Update update = new Update()
+                .set("estado", Job.Estado.EN_CURSO)
+                .set("actualizado", ahora)
+                .inc("intentos", 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Job.class)
+                .switchIfEmpty(Mono.defer(() -> agotar(id, ahora)));
+    }
+
+    private Mono<Job> agotar(String id, Date ahora) {
+        Query query = new Query(disponible(id, ahora).and("intentos").gte(maxIntentos));
+        Update update = new Update()
+                .set("estado", Job.Estado.FALLIDO)
+                .set("mensaje", "Se agotaron los " + maxIntentos + " intentos")
+                .set("actualizado", ahora)
+                .set("fin", ahora);
+        return mongoTemplate.findAndModify(query, update, Job.class)
+                .doOnNext(job -> log.warn("El job " + id + " se marca como fallido tras " + job.getIntentos() + " intentos"))
+                .then(Mono.empty());
+    }
+
+    private Criteria disponible(String id, Date ahora) {
+        return Criteria.where("id").is(id).orOperator(
+                Criteria.where("estado").is(Job.Estado.PENDIENTE),
+                Criteria.where("estado").is(Job.Estado.EN_CURSO)
+                        .and("actualizado").lt(Date.from(ahora.toInstant().minus(abandono))));
+    }
+
+    private Mono<Job> guardarAvance(Job job) {
+        Update update = new Update()
+                .set("procesados", job.getProcesados())
+                .set("total", job.getTotal())
+                .set("checkpoint", job.getCheckpoint())
+                .set("actualizado", job.getActualizado());
+        return mongoTemplate.updateFirst(enCurso(job.getId()), update, Job.class).thenReturn(job);
+    }
+
+    // recibe la ultima copia publicada, nunca el job reclamado
+    private Mono<Job> terminar(Job job, Job.Estado estado, String mensaje) {
+        Date ahora = new Date();
+        job.setEstado(estado);
+        job.setMensaje(mensaje);
+        job.setActualizado(ahora);
+        job.setFin(ahora);
+        Update update = new Update()
+                .set("estado", estado)
+                .set("procesados", job.getProcesados())
+                .set("total", job.getTotal())
+                .set("checkpoint", job.getCheckpoint())
+                .set("mensaje", mensaje)
+                .set("actualizado", ahora)
+                .set("fin", ahora);
+        return mongoTemplate.updateFirst(enCurso(job.getId()), update, Job.class).thenReturn(job);
+    }
+
+    private Mono<Void> tocar(String id) {
+        return mongoTemplate.updateFirst(enCurso(id), Update.update("actualizado", new Date()), Job.class).then();
+    }
+
+    private static Query enCurso(String id) {
+        return new Query(Criteria.where("id").is(id).and("estado").is(Job.Estado.EN_CURSO));
+    }
+
+    // el job reclamado no se modifica: cada avance se publica como una copia nueva
+    private static Job instantanea(Job job, Avance avance) {
+        Job copia = new Job(job.getTipo(), job.getParametros());
+        copia.setId(job.getId());
+        copia.setEstado(Job.Estado.EN_CURSO);
+        copia.setIntentos(job.getIntentos());
+        copia.setCreado(job.getCreado());
+        copia.setProcesados(avance.getProcesados());
+        copia.setTotal(avance.getTotal());
+        copia.setCheckpoint(avance.getCheckpoint());
+        copia.setActualizado(new Date());
+        return copia;
+    }
+}
@@ -0,0 +1,27 @@
+package com.spring.webflux.app.jobs;
+
+import com.spring.webflux.app.models.documents.Job;
+import com.spring.webflux.app.resumen.ResumenCatalogo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+// reconstruye el resumen en memoria del catalogo de la instancia que ejecuta el job, sin
+// esperar a la reconciliacion periodica
+@Component
+public class ReconciliarResumenJob implements TareaJob {
+
+    @Autowired
+    private ResumenCatalogo resumen;
+
+    @Override
+    public String getTipo() {
+        return "reconciliar-resumen";
+    }
+
+    @Override
+    public Flux<Avance> ejecutar(Job job) {
+        return resumen.reconciliar()
+                .thenMany(Flux.just(new Avance(1, 1L, null)));
+    }
+}
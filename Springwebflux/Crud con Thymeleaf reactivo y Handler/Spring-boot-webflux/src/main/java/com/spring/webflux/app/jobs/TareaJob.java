@@ -0,0 +1,13 @@
+package com.spring.webflux.app.jobs;
+
+import com.spring.webflux.app.models.documents.Job;
+import reactor.core.publisher.Flux;
+
+// un tipo de job. Al reanudarse tras un reinicio job.getCheckpoint() trae el ultimo avance
+// guardado y job.getProcesados() lo ya hecho; la tarea debe continuar desde ahi
+public interface TareaJob {
+
+    public String getTipo();
+
+    public Flux<Avance> ejecutar(Job job);
+}
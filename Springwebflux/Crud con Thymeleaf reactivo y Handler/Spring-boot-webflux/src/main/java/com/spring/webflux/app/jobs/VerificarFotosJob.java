@@ -0,0 +1,61 @@
+package com.spring.webflux.app.jobs;
+
+import com.spring.webflux.app.fotos.PhotoStore;
+import com.spring.webflux.app.models.dao.ProductoDao;
+import com.spring.webflux.app.models.documents.Job;
+import com.spring.webflux.app.models.documents.Producto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// recorre los productos en orden de id y quita la referencia a las fotos que ya no existen
+// en el almacen. El checkpoint es el id del ultimo producto revisado
+@Component
+public class VerificarFotosJob implements TareaJob {
+
+    @Autowired
+    private ProductoDao dao;
+
+    @Autowired
+    private PhotoStore photoStore;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public String getTipo() {
+        return "verificar-fotos";
+    }
+
+    @Override
+    public Flux<Avance> ejecutar(Job job) {
+        String desde = job.getCheckpoint();
+        AtomicLong procesados = new AtomicLong(job.getProcesados());
+        Mono<Long> total = job.getTotal() != null ? Mono.just(job.getTotal()) : dao.count();
+
+        return total.flatMapMany(cuantos -> (desde == null ? dao.findAllByOrderByIdAsc()
+                        : dao.findByIdGreaterThanOrderByIdAsc(desde))
+                // las comprobaciones van en paralelo pero los avances salen en orden de id
+                .flatMapSequential(this::verificar, 8)
+                .map(id -> new Avance(procesados.incrementAndGet(), cuantos, id)));
+    }
+
+    private Mono<String> verificar(Producto producto) {
+        if (producto.getFoto() == null) {
+            return Mono.just(producto.getId());
+        }
+        return photoStore.head(producto.getFoto())
+                .map(foto -> true)
+                .switchIfEmpty(Mono.defer(() -> mongoTemplate.updateFirst(
+                        new Query(Criteria.where("id").is(producto.getId()).and("foto").is(producto.getFoto())),
+                        new Update().unset("foto"), Producto.class).thenReturn(false)))
+                .thenReturn(producto.getId());
+    }
+}
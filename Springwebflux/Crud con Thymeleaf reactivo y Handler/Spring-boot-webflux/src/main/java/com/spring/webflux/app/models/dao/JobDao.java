@@ -0,0 +1,14 @@
+package com.spring.webflux.app.models.dao;
+
+import com.spring.webflux.app.models.documents.Job;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+import java.util.Date;
+
+public interface JobDao extends ReactiveMongoRepository<Job, String> {
+
+    public Flux<Job> findByEstado(Job.Estado estado);
+
+    public Flux<Job> findByEstadoAndActualizadoBefore(Job.Estado estado, Date limite);
+}
@@ -1,17 +1,54 @@
 package com.spring.webflux.app.models.dao;
 
 import com.spring.webflux.app.models.documents.Producto;
+import com.spring.webflux.app.models.dto.ProductoResumen;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.mongodb.repository.ReadPreference;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+// findAll y lo que ve la vista /listar se leen del primario: la reconciliacion del resumen y
+// el redirect despues de guardar tienen que ver lo ultimo escrito. Con secondaryPreferred solo
+// van los listados que toleran el retraso de un secundario (sin replica set, igual al primario)
 public interface ProductoDao  extends ReactiveMongoRepository<Producto, String> {
 
-
+    @Meta(maxExecutionTimeMs = 2000)
     public Mono<Producto> findByNombre(String nombre);
 
 
+    @Meta(maxExecutionTimeMs = 2000)
     @Query("{ 'nombre': ?0 }")
     public Mono<Producto> obtenerPorNombre(String nombre);
 
+    @Meta(maxExecutionTimeMs = 2000)
+    @ReadPreference("secondaryPreferred")
+    public Flux<Producto> findByCategoriaId(String categoriaId, Limit limite);
+
+    // recorridos completos en orden de _id, el cursor trae los documentos por lotes
+    @Meta(cursorBatchSize = 1000)
+    public Flux<Producto> findAllByOrderByIdAsc();
+
+    @Meta(cursorBatchSize = 1000)
+    public Flux<Producto> findByIdGreaterThanOrderByIdAsc(String id);
+
+    // el tipo puede ser el documento o una vista de lectura (p.ej. ProductoLectura)
+    @Meta(cursorBatchSize = 1000)
+    @ReadPreference("secondaryPreferred")
+    public <T> Flux<T> findAllBy(Class<T> tipo);
+
+    // proyecciones para los listados: el nombre se pasa a mayusculas en mongo y no viajan
+    // ni la foto ni el resto de la categoria
+    @Meta(cursorBatchSize = 1000)
+    @Aggregation("{ $project: { nombre: { $toUpper: '$nombre' }, precio: 1, createAt: 1, categoria: '$categoria.nombre' } }")
+    public Flux<ProductoResumen> listarConNombreMayusculas();
+
+    @Meta(cursorBatchSize = 1000)
+    @ReadPreference("secondaryPreferred")
+    @Aggregation("{ $project: { nombre: { $toUpper: '$nombre' }, precio: 1, createAt: 1 } }")
+    public Flux<ProductoResumen> listarCompacto();
+
 }
@@ -0,0 +1,154 @@
+package com.spring.webflux.app.models.documents;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.Map;
+
+@Document(collection = "jobs")
+public class Job {
+
+    public enum Estado { PENDIENTE, EN_CURSO, TERMINADO, FALLIDO }
+
+    @Id
+    private String id;
+
+    private String tipo;
+
+    @Indexed
+    private Estado estado;
+
+    private Map<String, String> parametros;
+
+    private long procesados;
+
+    // null mientras la tarea no sabe cuanto trabajo hay
+    private Long total;
+
+    // punto desde el que la tarea continua si el job se reanuda tras un reinicio
+    private String checkpoint;
+
+    private String mensaje;
+
+    private int intentos;
+
+    private Date creado;
+
+    // tambien hace de latido: un job EN_CURSO sin actualizar se considera abandonado
+    private Date actualizado;
+
+    private Date fin;
+
+    public Job() {
+    }
+
+    public Job(String tipo, Map<String, String> parametros) {
+        this.tipo = tipo;
+        this.parametros = parametros;
+        this.estado = Estado.PENDIENTE;
+        this.creado = new Date();
+        this.actualizado = this.creado;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public void setEstado(Estado estado) {
+        this.estado = estado;
+    }
+
+    public Map<String, String> getParametros() {
+        return parametros;
+    }
+
+    public void setParametros(Map<String, String> parametros) {
+        this.parametros = parametros;
+    }
+
+    public long getProcesados() {
+        return procesados;
+    }
+
+    public void setProcesados(long procesados) {
+        this.procesados = procesados;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(String checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    public void setMensaje(String mensaje) {
+        this.mensaje = mensaje;
+    }
+
+    public int getIntentos() {
+        return intentos;
+    }
+
+    public void setIntentos(int intentos) {
+        this.intentos = intentos;
+    }
+
+    public Date getCreado() {
+        return creado;
+    }
+
+    public void setCreado(Date creado) {
+        this.creado = creado;
+    }
+
+    public Date getActualizado() {
+        return actualizado;
+    }
+
+    public void setActualizado(Date actualizado) {
+        this.actualizado = actualizado;
+    }
+
+    public Date getFin() {
+        return fin;
+    }
+
+    public void setFin(Date fin) {
+        this.fin = fin;
+    }
+
+    public boolean isTerminado() {
+        return estado == Estado.TERMINADO || estado == Estado.FALLIDO;
+    }
+}
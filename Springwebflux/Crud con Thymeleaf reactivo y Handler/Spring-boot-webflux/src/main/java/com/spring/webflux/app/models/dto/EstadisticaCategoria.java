@@ -0,0 +1,57 @@
+package com.spring.webflux.app.models.dto;
+
+public class EstadisticaCategoria {
+
+    private String categoria;
+
+    private long cantidad;
+
+    private Double precioMinimo;
+
+    private Double precioMaximo;
+
+    private Double precioPromedio;
+
+    public EstadisticaCategoria() {
+    }
+
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public void setCategoria(String categoria) {
+        this.categoria = categoria;
+    }
+
+    public long getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(long cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public Double getPrecioMinimo() {
+        return precioMinimo;
+    }
+
+    public void setPrecioMinimo(Double precioMinimo) {
+        this.precioMinimo = precioMinimo;
+    }
+
+    public Double getPrecioMaximo() {
+        return precioMaximo;
+    }
+
+    public void setPrecioMaximo(Double precioMaximo) {
+        this.precioMaximo = precioMaximo;
+    }
+
+    public Double getPrecioPromedio() {
+        return precioPromedio;
+    }
+
+    public void setPrecioPromedio(Double precioPromedio) {
+        this.precioPromedio = precioPromedio;
+    }
+}
@@ -0,0 +1,18 @@
+package com.spring.webflux.app.models.dto;
+
+import java.util.Date;
+
+// fila de los listados: solo lo que pintan las vistas, proyectado en mongo. De la categoria
+// solo viene el nombre (null en las proyecciones que no la incluyen)
+public record ProductoResumen(String id, String nombre, Double precio, Date createAt, String categoria) {
+
+    // Date es mutable: se guarda y se entrega una copia, como en ProductoLectura
+    public ProductoResumen {
+        createAt = createAt == null ? null : new Date(createAt.getTime());
+    }
+
+    @Override
+    public Date createAt() {
+        return createAt == null ? null : new Date(createAt.getTime());
+    }
+}
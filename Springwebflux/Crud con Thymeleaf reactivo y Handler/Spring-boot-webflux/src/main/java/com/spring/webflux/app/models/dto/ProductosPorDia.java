@@ -0,0 +1,33 @@
+package com.spring.webflux.app.models.dto;
+
+public class ProductosPorDia {
+
+    // yyyy-MM-dd en UTC
+    private String dia;
+
+    private long cantidad;
+
+    public ProductosPorDia() {
+    }
+
+    public ProductosPorDia(String dia, long cantidad) {
+        this.dia = dia;
+        this.cantidad = cantidad;
+    }
+
+    public String getDia() {
+        return dia;
+    }
+
+    public void setDia(String dia) {
+        this.dia = dia;
+    }
+
+    public long getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(long cantidad) {
+        this.cantidad = cantidad;
+    }
+}
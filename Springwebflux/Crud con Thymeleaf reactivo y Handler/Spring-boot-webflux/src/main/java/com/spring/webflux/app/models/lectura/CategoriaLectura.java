@@ -0,0 +1,14 @@
+package com.spring.webflux.app.models.lectura;
+
+import com.spring.webflux.app.models.documents.Categoria;
+
+public record CategoriaLectura(String id, String nombre) {
+
+    public static CategoriaLectura de(Categoria categoria) {
+        return categoria == null ? null : new CategoriaLectura(categoria.getId(), categoria.getNombre());
+    }
+
+    public CategoriaLectura conNombre(String nombre) {
+        return new CategoriaLectura(id, nombre);
+    }
+}
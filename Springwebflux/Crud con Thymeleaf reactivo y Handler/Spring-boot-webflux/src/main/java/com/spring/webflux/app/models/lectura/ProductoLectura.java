@@ -0,0 +1,48 @@
+package com.spring.webflux.app.models.lectura;
+
+import com.spring.webflux.app.models.documents.Producto;
+
+import java.util.Date;
+
+// vista de solo lectura de un producto, mapeada directamente desde la coleccion productos.
+// Al ser inmutable una instancia se puede cachear y compartir entre peticiones; las
+// transformaciones (conNombre, ...) devuelven una copia en vez de modificarla.
+// Producto sigue siendo el documento de escritura (formularios, validacion)
+public record ProductoLectura(String id, String nombre, Double precio, Date createAt,
+                              CategoriaLectura categoria, String foto) {
+
+    // Date es mutable: se guarda y se entrega una copia
+    public ProductoLectura {
+        createAt = createAt == null ? null : new Date(createAt.getTime());
+    }
+
+    @Override
+    public Date createAt() {
+        return createAt == null ? null : new Date(createAt.getTime());
+    }
+
+    public static ProductoLectura de(Producto producto) {
+        return new ProductoLectura(producto.getId(), producto.getNombre(), producto.getPrecio(),
+                producto.getCreateAt(), CategoriaLectura.de(producto.getCategoria()), producto.getFoto());
+    }
+
+    public ProductoLectura conNombre(String nombre) {
+        return new ProductoLectura(id, nombre, precio, createAt, categoria, foto);
+    }
+
+    public ProductoLectura conPrecio(Double precio) {
+        return new ProductoLectura(id, nombre, precio, createAt, categoria, foto);
+    }
+
+    public ProductoLectura conCategoria(CategoriaLectura categoria) {
+        return new ProductoLectura(id, nombre, precio, createAt, categoria, foto);
+    }
+
+    public ProductoLectura conFoto(String foto) {
+        return new ProductoLectura(id, nombre, precio, createAt, categoria, foto);
+    }
+
+    public ProductoLectura conNombreEnMayusculas() {
+        return nombre == null ? this : conNombre(nombre.toUpperCase());
+    }
+}
@@ -0,0 +1,15 @@
+package com.spring.webflux.app.models.services;
+
+import com.spring.webflux.app.models.dto.EstadisticaCategoria;
+import com.spring.webflux.app.models.dto.ProductosPorDia;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+public interface EstadisticaService {
+
+    public Flux<EstadisticaCategoria> porCategoria();
+
+    // desde y hasta incluidos, null = sin limite
+    public Flux<ProductosPorDia> productosPorDia(LocalDate desde, LocalDate hasta);
+}
@@ -0,0 +1,131 @@
+package com.spring.webflux.app.models.services;
+
+import com.spring.webflux.app.models.documents.Producto;
+import com.spring.webflux.app.models.dto.EstadisticaCategoria;
+import com.spring.webflux.app.models.dto.ProductosPorDia;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// los calculos se hacen con pipelines de agregacion: a la aplicacion solo llegan los resultados,
+// nunca los productos
+@Service
+public class EstadisticaServiceImpl implements EstadisticaService {
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    // 0 = sin cache, cada peticion lanza la agregacion
+    @Value("${config.estadisticas.cache:PT30S}")
+    private Duration cache;
+
+    // la serie diaria se refresca de forma incremental; cada cierto tiempo se recalcula
+    // entera para recoger bajas y ediciones de dias anteriores
+    @Value("${config.estadisticas.reconstruccion:PT1H}")
+    private Duration reconstruccion;
+
+    private final AtomicReference<SerieDiaria> ultimaSerie = new AtomicReference<>();
+
+    private Mono<List<EstadisticaCategoria>> categorias;
+
+    private Mono<SerieDiaria> serie;
+
+    @PostConstruct
+    public void init() {
+        categorias = cachear(Mono.defer(() -> agregarPorCategoria().collectList()));
+        serie = cachear(Mono.defer(this::refrescarSerie));
+    }
+
+    @Override
+    public Flux<EstadisticaCategoria> porCategoria() {
+        return categorias.flatMapIterable(lista -> lista);
+    }
+
+    @Override
+    public Flux<ProductosPorDia> productosPorDia(LocalDate desde, LocalDate hasta) {
+        String inicio = desde != null ? desde.toString() : "";
+        String fin = hasta != null ? hasta.toString() : "\uffff";
+        return serie.flatMapIterable(s -> s.dias().subMap(inicio, true, fin, true).entrySet())
+                .map(dia -> new ProductosPorDia(dia.getKey(), dia.getValue()));
+    }
+
+    private Flux<EstadisticaCategoria> agregarPorCategoria() {
+        Aggregation agregacion = Aggregation.newAggregation(
+                Aggregation.group("categoria.nombre")
+                        .count().as("cantidad")
+                        .min("precio").as("precioMinimo")
+                        .max("precio").as("precioMaximo")
+                        .avg("precio").as("precioPromedio"),
+                Aggregation.project("cantidad", "precioMinimo", "precioMaximo", "precioPromedio")
+                        .and("categoria").previousOperation(),
+                Aggregation.sort(Sort.Direction.ASC, "categoria"));
+        return mongoTemplate.aggregate(agregacion, Producto.class, EstadisticaCategoria.class);
+    }
+
+    private Flux<ProductosPorDia> agregarPorDia(Date desde) {
+        List<AggregationOperation> etapas = new ArrayList<>();
+        if (desde != null) {
+            etapas.add(Aggregation.match(Criteria.where("createAt").gte(desde)));
+        } else {
+            etapas.add(Aggregation.match(Criteria.where("createAt").ne(null)));
+        }
+        etapas.add(Aggregation.project()
+                .and(DateOperators.DateToString.dateOf("createAt").toString("%Y-%m-%d")).as("dia"));
+        etapas.add(Aggregation.group("dia").count().as("cantidad"));
+        etapas.add(Aggregation.project("cantidad").and("dia").previousOperation());
+        return mongoTemplate.aggregate(Aggregation.newAggregation(etapas), Producto.class, ProductosPorDia.class);
+    }
+
+    // sin serie previa (o cuando toca reconstruir) se agrega todo; si no, solo desde el inicio
+    // del dia del ultimo calculo: los dias anteriores no cambian con las altas nuevas
+    private Mono<SerieDiaria> refrescarSerie() {
+        Instant ahora = Instant.now();
+        SerieDiaria anterior = ultimaSerie.get();
+        boolean completa = anterior == null || anterior.reconstruida().plus(reconstruccion).isBefore(ahora);
+        Date desde = completa ? null : Date.from(anterior.calculada().atZone(ZoneOffset.UTC)
+                .toLocalDate().atStartOfDay(ZoneOffset.UTC).toInstant());
+
+        return agregarPorDia(desde)
+                .collectMap(ProductosPorDia::getDia, ProductosPorDia::getCantidad)
+                .map(nuevos -> {
+                    TreeMap<String, Long> dias = completa ? new TreeMap<>() : new TreeMap<>(anterior.dias());
+                    dias.putAll(nuevos);
+                    SerieDiaria actual = new SerieDiaria(Collections.unmodifiableNavigableMap(dias), ahora,
+                            completa ? ahora : anterior.reconstruida());
+                    ultimaSerie.set(actual);
+                    return actual;
+                });
+    }
+
+    // una sola agregacion en vuelo por vez: quien llega mientras se calcula espera el mismo resultado
+    private <T> Mono<T> cachear(Mono<T> origen) {
+        if (cache.isZero() || cache.isNegative()) {
+            return origen;
+        }
+        return origen.cache(valor -> cache, error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    private record SerieDiaria(NavigableMap<String, Long> dias, Instant calculada, Instant reconstruida) {
+    }
+}
@@ -2,6 +2,8 @@ package com.spring.webflux.app.models.services;
 
 import com.spring.webflux.app.models.documents.Categoria;
 import com.spring.webflux.app.models.documents.Producto;
+import com.spring.webflux.app.models.dto.ProductoResumen;
+import com.spring.webflux.app.models.lectura.ProductoLectura;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -9,9 +11,15 @@ public interface ProductoService {
 
     public Flux<Producto> findAll();
 
-    public Flux<Producto> findAllConNombreUpperCase();
+    // vistas inmutables, seguras para cachear y compartir
+    public Flux<ProductoLectura> findAllLectura();
 
-    public Flux<Producto> findAllConNombreUpperCaseRepeat();
+    public Flux<ProductoResumen> findAllConNombreUpperCase();
+
+    public Flux<ProductoResumen> findAllConNombreUpperCaseRepeat();
+
+    // sin categoria, para el listado por chunks
+    public Flux<ProductoResumen> findAllCompactoRepeat();
 
 
     public Mono<Producto> findById(String id);
@@ -20,11 +28,15 @@ public interface ProductoService {
 
     public Mono<Void> delete(Producto producto);
 
+    public Mono<Void> deleteFoto(String foto);
+
     public Flux<Categoria> findAllCategorie();
 
 
     public Mono<Categoria> findCategoriaById(String id);
 
+    public Flux<Producto> findByCategoriaId(String categoriaId, int limite);
+
     public Mono<Categoria> saveCategoria(Categoria categoria);
 
     public Mono<Producto> findByNombre(String nombre);
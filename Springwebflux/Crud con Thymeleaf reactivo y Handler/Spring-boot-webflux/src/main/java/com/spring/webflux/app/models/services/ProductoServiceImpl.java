@@ -1,15 +1,24 @@
 package com.spring.webflux.app.models.services;
 
+import com.spring.webflux.app.fotos.PhotoStore;
 import com.spring.webflux.app.models.dao.CategoriaDao;
 import com.spring.webflux.app.models.dao.ProductoDao;
 import com.spring.webflux.app.models.documents.Categoria;
 import com.spring.webflux.app.models.documents.Producto;
+import com.spring.webflux.app.models.dto.ProductoResumen;
+import com.spring.webflux.app.models.lectura.ProductoLectura;
+import com.spring.webflux.app.resumen.ResumenCatalogo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Optional;
+
 @Service //esta notación es un estereotipo de component,
 // indica que esta clase es una fachada, un service en la lógica de negocio
 public class ProductoServiceImpl implements ProductoService{
@@ -19,25 +28,40 @@ public class ProductoServiceImpl implements ProductoService{
 
     @Autowired
     private CategoriaDao categoriaDao;
+
+    @Autowired
+    private PhotoStore photoStore;
+
+    @Autowired
+    private ResumenCatalogo resumen;
+
+    private static final Logger log = LoggerFactory.getLogger(ProductoServiceImpl.class);
+
     @Override
     public Flux<Producto> findAll() {
         return dao.findAll();
     }
 
     @Override
-    public Flux<Producto> findAllConNombreUpperCase() {
-        return dao.findAll().map(producto -> {
+    public Flux<ProductoLectura> findAllLectura() {
+        return dao.findAllBy(ProductoLectura.class);
+    }
 
-            producto.setNombre(producto.getNombre().toUpperCase());
-            return producto;
-        });
+    @Override
+    public Flux<ProductoResumen> findAllConNombreUpperCase() {
+        return dao.listarConNombreMayusculas();
     }
 
     @Override
-    public Flux<Producto> findAllConNombreUpperCaseRepeat() {
+    public Flux<ProductoResumen> findAllConNombreUpperCaseRepeat() {
         return findAllConNombreUpperCase().repeat(5000);
     }
 
+    @Override
+    public Flux<ProductoResumen> findAllCompactoRepeat() {
+        return dao.listarCompacto().repeat(5000);
+    }
+
     @Override
     public Mono<Producto> findById(String id) {
         return dao.findById(id);
@@ -45,12 +69,34 @@ public class ProductoServiceImpl implements ProductoService{
 
     @Override
     public Mono<Producto> save(Producto producto) {
-        return dao.save(producto);
+        // en una edicion hay que descontar la version anterior del resumen del catalogo
+        Mono<Optional<Producto>> anterior = producto.getId() == null ? Mono.just(Optional.empty())
+                : dao.findById(producto.getId()).map(Optional::of).defaultIfEmpty(Optional.empty());
+        return anterior.flatMap(previo -> dao.save(producto)
+                .doOnNext(guardado -> {
+                    previo.ifPresent(resumen::quitar);
+                    resumen.agregar(guardado);
+                }));
     }
 
     @Override
     public Mono<Void> delete(Producto producto) {
-        return dao.delete(producto);
+        return dao.delete(producto)
+                .then(Mono.fromRunnable(() -> resumen.quitar(producto)))
+                .then(deleteFoto(producto.getFoto()));
+    }
+
+    // si el borrado falla la foto queda huerfana y la limpia el RecolectorFotos
+    @Override
+    public Mono<Void> deleteFoto(String foto) {
+        if (foto == null || foto.isBlank()) {
+            return Mono.empty();
+        }
+        return photoStore.delete(foto)
+                .onErrorResume(e -> {
+                    log.warn("No se pudo borrar la foto " + foto + ": " + e.getMessage());
+                    return Mono.empty();
+                });
     }
 
     @Override
@@ -63,6 +109,11 @@ public class ProductoServiceImpl implements ProductoService{
         return categoriaDao.findById(id);
     }
 
+    @Override
+    public Flux<Producto> findByCategoriaId(String categoriaId, int limite) {
+        return dao.findByCategoriaId(categoriaId, Limit.of(limite));
+    }
+
     @Override
     public Mono<Categoria> saveCategoria(Categoria categoria) {
         return categoriaDao.save(categoria);
@@ -0,0 +1,75 @@
+package com.spring.webflux.app.resumen;
+
+import com.spring.webflux.app.models.dto.EstadisticaCategoria;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+// contadores de una categoria sin locks: LongAdder/DoubleAdder reparten las escrituras en
+// celdas por hilo y el minimo/maximo se actualiza con CAS sobre los bits del double.
+// Al quitar un producto el minimo/maximo no puede deshacerse; queda como cota hasta la
+// siguiente reconciliacion
+class ContadoresCategoria {
+
+    private final LongAdder cantidad = new LongAdder();
+
+    private final DoubleAdder sumaPrecios = new DoubleAdder();
+
+    private final AtomicLong minimo = new AtomicLong(Double.doubleToRawLongBits(Double.POSITIVE_INFINITY));
+
+    private final AtomicLong maximo = new AtomicLong(Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY));
+
+    // contadores ya calculados por la agregacion de la reconciliacion
+    static ContadoresCategoria de(long cantidad, double sumaPrecios, Double minimo, Double maximo) {
+        ContadoresCategoria contadores = new ContadoresCategoria();
+        contadores.cantidad.add(cantidad);
+        contadores.sumaPrecios.add(sumaPrecios);
+        if (minimo != null) {
+            contadores.minimo.set(Double.doubleToRawLongBits(minimo));
+        }
+        if (maximo != null) {
+            contadores.maximo.set(Double.doubleToRawLongBits(maximo));
+        }
+        return contadores;
+    }
+
+    void agregar(Double precio) {
+        cantidad.increment();
+        if (precio == null) {
+            return;
+        }
+        sumaPrecios.add(precio);
+        long actual;
+        while (precio < Double.longBitsToDouble(actual = minimo.get())
+                && !minimo.compareAndSet(actual, Double.doubleToRawLongBits(precio))) {
+        }
+        while (precio > Double.longBitsToDouble(actual = maximo.get())
+                && !maximo.compareAndSet(actual, Double.doubleToRawLongBits(precio))) {
+        }
+    }
+
+    void quitar(Double precio) {
+        cantidad.decrement();
+        if (precio != null) {
+            sumaPrecios.add(-precio);
+        }
+    }
+
+    long cantidad() {
+        return cantidad.sum();
+    }
+
+    EstadisticaCategoria resumen(String categoria) {
+        long total = cantidad.sum();
+        double min = Double.longBitsToDouble(minimo.get());
+        double max = Double.longBitsToDouble(maximo.get());
+        EstadisticaCategoria resumen = new EstadisticaCategoria();
+        resumen.setCategoria(categoria);
+        resumen.setCantidad(total);
+        resumen.setPrecioMinimo(Double.isInfinite(min) ? null : min);
+        resumen.setPrecioMaximo(Double.isInfinite(max) ? null : max);
+        resumen.setPrecioPromedio(total > 0 ? sumaPrecios.sum() / total : null);
+        return resumen;
+    }
+}
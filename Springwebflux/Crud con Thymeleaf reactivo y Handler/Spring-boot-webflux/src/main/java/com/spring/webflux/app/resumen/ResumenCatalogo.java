@@ -0,0 +1,168 @@
+package com.spring.webflux.app.resumen;
+
+import com.spring.webflux.app.models.documents.Producto;
+import com.spring.webflux.app.models.dto.EstadisticaCategoria;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// vista materializada del catalogo por categoria para la home: se lee sin ir a Mongo.
+// ProductoService la actualiza en cada alta, edicion y baja, y la reconciliacion periodica
+// la reconstruye con una agregacion para corregir lo que se haya desviado (bajas que afectan
+// al minimo/maximo, cambios hechos directamente en la base). Los cambios que llegan mientras
+// corre la agregacion se anotan y se vuelven a aplicar sobre el resultado antes de cambiarlo;
+// una escritura que coincida con el recorrido puede quedar contada dos veces o ninguna, y lo
+// arregla la siguiente reconciliacion
+@Component
+public class ResumenCatalogo {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumenCatalogo.class);
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private volatile Map<String, ContadoresCategoria> categorias = new ConcurrentHashMap<>();
+
+    // cambios recibidos durante una reconciliacion en curso; null si no hay ninguna
+    private Queue<Cambio> pendientes;
+
+    // las altas y bajas comparten el de lectura; el de escritura solo lo toma la reconciliacion
+    // para empezar a anotar y para aplicar lo anotado y cambiar el mapa
+    private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    public void agregar(Producto producto) {
+        aplicar(new Cambio(producto, true));
+    }
+
+    public void quitar(Producto producto) {
+        aplicar(new Cambio(producto, false));
+    }
+
+    private void aplicar(Cambio cambio) {
+        if (cambio.producto().getCategoria() == null) {
+            return;
+        }
+        cerrojo.readLock().lock();
+        try {
+            cambio.aplicar(categorias);
+            if (pendientes != null) {
+                pendientes.add(cambio);
+            }
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    public Optional<EstadisticaCategoria> categoria(String nombre) {
+        return Optional.ofNullable(categorias.get(nombre))
+                .filter(contadores -> contadores.cantidad() > 0)
+                .map(contadores -> contadores.resumen(nombre));
+    }
+
+    public List<EstadisticaCategoria> todas() {
+        return categorias.entrySet().stream()
+                .filter(categoria -> categoria.getValue().cantidad() > 0)
+                .map(categoria -> categoria.getValue().resumen(categoria.getKey()))
+                .sorted(Comparator.comparing(EstadisticaCategoria::getCategoria))
+                .toList();
+    }
+
+    // la primera ejecucion es la carga inicial
+    @Scheduled(initialDelay = 0, fixedDelayString = "${config.resumen.reconciliacion:PT5M}")
+    public Mono<Void> reconciliar() {
+        Aggregation agregacion = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("categoria").ne(null)),
+                Aggregation.group("categoria.nombre")
+                        .count().as("cantidad")
+                        .sum("precio").as("suma")
+                        .min("precio").as("minimo")
+                        .max("precio").as("maximo"));
+        return Mono.usingWhen(Mono.fromCallable(this::empezarAnotar),
+                        anotados -> mongoTemplate.aggregate(agregacion, Producto.class, Document.class)
+                                .collectMap(categoria -> String.valueOf(categoria.get("_id")),
+                                        ResumenCatalogo::contadores, ConcurrentHashMap::new)
+                                .doOnNext(nuevas -> cambiar(nuevas, anotados)),
+                        anotados -> Mono.fromRunnable(() -> dejarDeAnotar(anotados)))
+                .doOnError(e -> log.error("No se pudo reconciliar el resumen del catalogo", e))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private Queue<Cambio> empezarAnotar() {
+        cerrojo.writeLock().lock();
+        try {
+            // si ya hay otra reconciliacion en curso (el job y la programada) se comparte la cola
+            if (pendientes == null) {
+                pendientes = new ConcurrentLinkedQueue<>();
+            }
+            return pendientes;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    private void cambiar(Map<String, ContadoresCategoria> nuevas, Queue<Cambio> anotados) {
+        cerrojo.writeLock().lock();
+        try {
+            anotados.forEach(cambio -> cambio.aplicar(nuevas));
+            categorias = nuevas;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    private void dejarDeAnotar(Queue<Cambio> anotados) {
+        cerrojo.writeLock().lock();
+        try {
+            if (pendientes == anotados) {
+                pendientes = null;
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    private static ContadoresCategoria contadores(Document categoria) {
+        Number suma = categoria.get("suma", Number.class);
+        Number minimo = categoria.get("minimo", Number.class);
+        Number maximo = categoria.get("maximo", Number.class);
+        return ContadoresCategoria.de(categoria.get("cantidad", Number.class).longValue(),
+                suma != null ? suma.doubleValue() : 0,
+                minimo != null ? minimo.doubleValue() : null,
+                maximo != null ? maximo.doubleValue() : null);
+    }
+
+    private static String clave(Producto producto) {
+        return String.valueOf(producto.getCategoria().getNombre());
+    }
+
+    private record Cambio(Producto producto, boolean alta) {
+
+        void aplicar(Map<String, ContadoresCategoria> categorias) {
+            ContadoresCategoria contadores = categorias.computeIfAbsent(clave(producto),
+                    k -> new ContadoresCategoria());
+            if (alta) {
+                contadores.agregar(producto.getPrecio());
+            } else {
+                contadores.quitar(producto.getPrecio());
+            }
+        }
+    }
+}
@@ -195,11 +195,10 @@ public class SpringBootReactorApplication implements CommandLineRunner {
     public void ejemploUsuarioComentarioZipWithForma2() {
         Mono<Usuario> usuarioMono = Mono.fromCallable(() -> new Usuario("Jhon", "Doe"));
         Mono<Comentarios> comentariosMono = Mono.fromCallable(() -> {
-            Comentarios comentarios = new Comentarios();
-            comentarios.addComentarios("jelou, esto es una prueba");
-            comentarios.addComentarios("test");
-            comentarios.addComentarios("bla bla bla no se que poner");
-            return comentarios;
+            return new Comentarios()
+                    .conComentario("jelou, esto es una prueba")
+                    .conComentario("test")
+                    .conComentario("bla bla bla no se que poner");
         });
 
         Mono<UsuarioComentarios> usuarioComentariosMono = usuarioMono.zipWith(comentariosMono)
@@ -215,11 +214,10 @@ public class SpringBootReactorApplication implements CommandLineRunner {
     public void ejemploUsuarioComentarioZipWith() {
         Mono<Usuario> usuarioMono = Mono.fromCallable(() -> new Usuario("Jhon", "Doe"));
         Mono<Comentarios> comentariosMono = Mono.fromCallable(() -> {
-            Comentarios comentarios = new Comentarios();
-            comentarios.addComentarios("jelou, esto es una prueba");
-            comentarios.addComentarios("test");
-            comentarios.addComentarios("bla bla bla no se que poner");
-            return comentarios;
+            return new Comentarios()
+                    .conComentario("jelou, esto es una prueba")
+                    .conComentario("test")
+                    .conComentario("bla bla bla no se que poner");
         });
 
         Mono<UsuarioComentarios> usuarioComentariosMono = usuarioMono.zipWith(
@@ -236,11 +234,10 @@ public class SpringBootReactorApplication implements CommandLineRunner {
     public void ejemploUsuarioComentarioFlatMap() {
         Mono<Usuario> usuarioMono = Mono.fromCallable(() -> new Usuario("Jhon", "Doe"));
         Mono<Comentarios> comentariosMono = Mono.fromCallable(() -> {
-            Comentarios comentarios = new Comentarios();
-            comentarios.addComentarios("jelou, esto es una prueba");
-            comentarios.addComentarios("test");
-            comentarios.addComentarios("bla bla bla no se que poner");
-            return comentarios;
+            return new Comentarios()
+                    .conComentario("jelou, esto es una prueba")
+                    .conComentario("test")
+                    .conComentario("bla bla bla no se que poner");
         });
 
         usuarioMono.flatMap(u -> comentariosMono.map(c -> new UsuarioComentarios(u, c)))
@@ -283,9 +280,9 @@ public class SpringBootReactorApplication implements CommandLineRunner {
         usuariosList.add(new Usuario("Bruce", "willis"));
 
         Flux.fromIterable(usuariosList)
-                .map(usuario -> usuario.getNombre().toUpperCase()
+                .map(usuario -> usuario.nombre().toUpperCase()
                         .concat(" ")
-                        .concat(usuario.getApellido().toUpperCase()))
+                        .concat(usuario.apellido().toUpperCase()))
                 .flatMap(nombre -> nombre.contains("BRUCE") ? Mono.just(nombre) : Mono.empty())
                 .map(String::toLowerCase)
                 .subscribe(usuario -> logger.info(usuario));
@@ -309,12 +306,9 @@ public class SpringBootReactorApplication implements CommandLineRunner {
                 .map(nombre -> new Usuario(
                         nombre.split(" ")[0].toUpperCase(),
                         nombre.split(" ")[1].toUpperCase()))
-                .flatMap(usuario -> usuario.getNombre().equalsIgnoreCase("bruce") ?
+                .flatMap(usuario -> usuario.nombre().equalsIgnoreCase("bruce") ?
                         Mono.just(usuario) : Mono.empty())
-                .map(usuario -> {
-                    usuario.setNombre(usuario.getNombre().toLowerCase());
-                    return usuario;
-                })
+                .map(usuario -> usuario.conNombre(usuario.nombre().toLowerCase()))
                 .subscribe(usuario -> logger.info(usuario.toString()));
     }
 
@@ -340,17 +334,14 @@ public class SpringBootReactorApplication implements CommandLineRunner {
                 .map(nombre -> new Usuario(
                         nombre.split(" ")[0].toUpperCase(),
                         nombre.split(" ")[1].toUpperCase()))
-                .filter(usuario -> usuario.getNombre().equalsIgnoreCase("bruce"))
+                .filter(usuario -> usuario.nombre().equalsIgnoreCase("bruce"))
                 .doOnNext(usuario -> {
                     if (usuario == null) {
                         throw new RuntimeException("Nombres no pueden ser vacíos");
                     }
-                    System.out.println(usuario.getNombre().concat(" ").concat(usuario.getApellido()));
+                    System.out.println(usuario.nombre().concat(" ").concat(usuario.apellido()));
                 })
-                .map(usuario -> {
-                    usuario.setNombre(usuario.getNombre().toLowerCase());
-                    return usuario;
-                });
+                .map(usuario -> usuario.conNombre(usuario.nombre().toLowerCase()));
 
         usuarios.subscribe(
                 e -> logger.info(e.toString()),
@@ -3,28 +3,20 @@ package com.example.springboot.reactor.springboot.reactor.app.models;
 import java.util.ArrayList;
 import java.util.List;
 
-public class Comentarios {
+// lista de comentarios inmutable: conComentario devuelve una copia con el nuevo comentario
+public record Comentarios(List<String> comentarios) {
 
-    private List<String> comentarios;
-
-    public Comentarios() {
-        this.comentarios = new ArrayList<>();
-    }
-
-    public List<String> getComentarios() {
-        return comentarios;
+    public Comentarios {
+        comentarios = List.copyOf(comentarios);
     }
 
-    public void setComentarios(List<String> comentarios) {
-        this.comentarios = comentarios;
-    }
-
-    public void addComentarios(String comentarios) {
-        this.comentarios.add(comentarios);
+    public Comentarios() {
+        this(List.of());
     }
 
-    @Override
-    public String toString() {
-        return "comentarios=" + comentarios ;
+    public Comentarios conComentario(String comentario) {
+        List<String> nuevos = new ArrayList<>(comentarios);
+        nuevos.add(comentario);
+        return new Comentarios(nuevos);
     }
 }
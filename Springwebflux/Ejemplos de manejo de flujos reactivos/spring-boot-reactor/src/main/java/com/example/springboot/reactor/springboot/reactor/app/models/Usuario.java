@@ -1,39 +1,14 @@
 package com.example.springboot.reactor.springboot.reactor.app.models;
 
-public class Usuario {
+// usuario inmutable: las transformaciones devuelven una copia en vez de modificarlo,
+// asi una misma instancia se puede compartir entre flujos sin sorpresas
+public record Usuario(String nombre, String apellido) {
 
-    private String nombre;
-
-    private String apellido;
-
-    public Usuario(String nombre, String apellido) {
-        this.nombre = nombre;
-        this.apellido = apellido;
-    }
-
-    public String getNombre() {
-
-        return nombre;
-    }
-
-    public void setNombre(String nombre) {
-
-        this.nombre = nombre;
-    }
-
-    public String getApellido() {
-        return apellido;
-    }
-
-    public void setApellido(String apellido) {
-        this.apellido = apellido;
+    public Usuario conNombre(String nombre) {
+        return new Usuario(nombre, apellido);
     }
 
-    @Override
-    public String toString() {
-        return "Usuario{" +
-                "nombre='" + nombre + '\'' +
-                ", apellido='" + apellido + '\'' +
-                '}';
+    public Usuario conApellido(String apellido) {
+        return new Usuario(nombre, apellido);
     }
 }
@@ -0,0 +1,174 @@
+package com.example.springboot.webflux.eureka.app;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+// levanta el servidor en este proceso con el perfil perf (puerto libre, sin el limitador de
+// fetch) y le habla por http como lo harian N clientes: registra las instancias, mide
+// renovaciones por segundo, la latencia de los fetch completos y de los deltas, y el heap
+// que ocupa cada instancia.
+// La memoria es el heap usado despues de un gc antes y despues de registrar: sirve para
+// comparar ordenes de magnitud, no para afinar bytes.
+// Uso: gradle benchmark -Pinstancias=500 -Prenovaciones=20000 -Pconcurrencia=32 -Pfetches=200
+public class BenchmarkRegistro {
+
+    private static final String APP = "BENCHMARK";
+
+    private static final int APLICACIONES = 10;
+
+    private static final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        int instancias = argumento(args, 0, 500);
+        int renovaciones = argumento(args, 1, 20000);
+        int concurrencia = argumento(args, 2, 32);
+        int fetches = argumento(args, 3, 200);
+
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(SpringBootWebfluxEurekaServerApplication.class)
+                .profiles("perf")
+                // se mide el servidor, no el limitador de fetch: con el del perfil los fetch
+                // concurrentes acabarian en 503
+                .properties("server.port=0", "logging.level.root=warn", "eureka.server.rate-limiter-enabled=false")
+                .run();
+        ExecutorService hilos = Executors.newFixedThreadPool(concurrencia);
+        try {
+            String base = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port") + "/eureka";
+            System.out.println("JVM " + Runtime.version() + ", " + Runtime.getRuntime().availableProcessors()
+                    + " cpu, " + instancias + " instancias en " + APLICACIONES + " aplicaciones, concurrencia "
+                    + concurrencia);
+            System.out.printf("%-14s %8s %10s %10s %10s %9s%n", "operacion", "total", "ops/s", "p50 ms", "p99 ms", "errores");
+
+            long heapAntes = heapTrasGc();
+            imprimir("registro", correr(hilos, concurrencia, instancias, i -> registro(base, i)));
+            long heapDespues = heapTrasGc();
+
+            imprimir("renovacion", correr(hilos, concurrencia, renovaciones, i -> renovacion(base, i % instancias)));
+            // el primero de cada tipo llena la cache de respuestas, se deja fuera de la medida
+            correr(hilos, concurrencia, 1, i -> fetch(base + "/apps"));
+            correr(hilos, concurrencia, 1, i -> fetch(base + "/apps/delta"));
+            imprimir("fetch", correr(hilos, concurrencia, fetches, i -> fetch(base + "/apps")));
+            imprimir("fetch delta", correr(hilos, concurrencia, fetches, i -> fetch(base + "/apps/delta")));
+
+            System.out.println("heap por instancia: " + Math.max(0, heapDespues - heapAntes) / instancias
+                    + " bytes (" + (heapDespues - heapAntes) / 1024 + " KB en total)");
+            HttpResponse<byte[]> completo = http.send(peticion(base + "/apps").build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            System.out.println("tamano de un fetch completo: " + completo.body().length / 1024 + " KB");
+        } finally {
+            hilos.shutdownNow();
+            contexto.close();
+        }
+    }
+
+    private static HttpRequest registro(String base, int i) {
+        String app = APP + (i % APLICACIONES);
+        String instancia = """
+                {"instance": {"instanceId": "%s", "hostName": "host-%d", "app": "%s", "ipAddr": "10.0.%d.%d",
+                 "status": "UP", "port": {"$": 8080, "@enabled": "true"}, "securePort": {"$": 443, "@enabled": "false"},
+                 "vipAddress": "%s", "dataCenterInfo": {"@class": "com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo",
+                 "name": "MyOwn"}, "leaseInfo": {"renewalIntervalInSecs": 30, "durationInSecs": 90}}}
+                """.formatted(id(i), i, app, i / 256 % 256, i % 256, app.toLowerCase());
+        return peticion(base + "/apps/" + app)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(instancia))
+                .build();
+    }
+
+    private static HttpRequest renovacion(String base, int i) {
+        return peticion(base + "/apps/" + APP + (i % APLICACIONES) + "/" + id(i) + "?status=UP")
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private static HttpRequest fetch(String url) {
+        return peticion(url).GET().build();
+    }
+
+    // se presenta como un cliente eureka estandar (DefaultClient), igual que los de este repo
+    private static HttpRequest.Builder peticion(String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Accept", "application/json")
+                .header("DiscoveryIdentity-Name", "DefaultClient");
+    }
+
+    private static String id(int i) {
+        return "instancia-" + i;
+    }
+
+    private static Resultado correr(ExecutorService hilos, int concurrencia, int operaciones, IntFunction<HttpRequest> operacion)
+            throws Exception {
+        long[] latencias = new long[operaciones];
+        AtomicInteger siguiente = new AtomicInteger();
+        AtomicInteger errores = new AtomicInteger();
+        AtomicLong fin = new AtomicLong();
+        List<Future<?>> tareas = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int t = 0; t < concurrencia; t++) {
+            tareas.add(hilos.submit(() -> {
+                for (int i = siguiente.getAndIncrement(); i < operaciones; i = siguiente.getAndIncrement()) {
+                    long comienzo = System.nanoTime();
+                    try {
+                        HttpResponse<Void> respuesta = http.send(operacion.apply(i),
+                                HttpResponse.BodyHandlers.discarding());
+                        if (respuesta.statusCode() >= 300) {
+                            errores.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errores.incrementAndGet();
+                    }
+                    latencias[i] = System.nanoTime() - comienzo;
+                }
+                fin.accumulateAndGet(System.nanoTime(), Math::max);
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        Arrays.sort(latencias);
+        return new Resultado(operaciones, operaciones * 1e9 / (fin.get() - inicio), percentil(latencias, 0.50),
+                percentil(latencias, 0.99), errores.get());
+    }
+
+    private static long heapTrasGc() throws InterruptedException {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return memoria.getHeapMemoryUsage().getUsed();
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        return ordenadas[(int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1)] / 1e6;
+    }
+
+    private static void imprimir(String operacion, Resultado r) {
+        System.out.printf("%-14s %8d %10.1f %10.2f %10.2f %9d%n", operacion, r.total(), r.opsPorSegundo(),
+                r.p50(), r.p99(), r.errores());
+    }
+
+    private static int argumento(String[] args, int posicion, int defecto) {
+        return args.length > posicion ? Integer.parseInt(args[posicion]) : defecto;
+    }
+
+    private record Resultado(int total, double opsPorSegundo, double p50, double p99, int errores) {
+    }
+}